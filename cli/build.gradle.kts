@@ -0,0 +1,30 @@
+plugins {
+  application
+}
+
+repositories {
+  mavenCentral()
+}
+
+dependencies {
+  implementation(project(":lib"))
+  implementation(project(":server"))
+  testImplementation(libs.junit)
+}
+
+java {
+  toolchain {
+    languageVersion.set(JavaLanguageVersion.of(21))
+  }
+}
+
+application {
+  mainClass.set("br.com.lourenzo.qrcode.cli.BulkRenderer")
+}
+
+tasks.register<JavaExec>("replay") {
+  group = "application"
+  description = "Replays a recorded payload file through a renderer and reports throughput and latency."
+  classpath = sourceSets["main"].runtimeClasspath
+  mainClass.set("br.com.lourenzo.qrcode.cli.WorkloadReplay")
+}
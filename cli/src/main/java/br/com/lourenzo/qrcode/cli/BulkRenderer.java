@@ -0,0 +1,282 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.cli;
+
+import br.com.lourenzo.qrcode.SvgQrCode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders every payload of a line-delimited or CSV file to SVG and writes the results into a directory, or a
+ * single ZIP archive when the output path ends in {@code .zip}.
+ * <p>
+ * The reader, the render workers and the writer are connected by bounded queues, so a slow writer throttles
+ * the workers and the workers throttle the reader; apart from the set of names already written, memory stays
+ * proportional to the queue capacity. Encoding and rendering share a stage because {@link SvgQrCode} performs
+ * both in one call. A name that was already written, ignoring case, gets the input line number appended.
+ */
+public final class BulkRenderer {
+
+  private static final String USAGE = """
+    Usage: BulkRenderer --input <file> --output <directory|archive.zip> [options]
+      --format lines|csv     input format (default: lines)
+      --header               skip the first input line
+      --column <n>           CSV column holding the payload (default: 0)
+      --name-column <n>      CSV column used as the output file name (default: line number)
+      --threads <n>          render workers (default: available processors)
+      --queue <n>            capacity of each pipeline queue (default: 1024)
+      --scale <n>            SVG scale (default: 10)
+      --border <n>           SVG border in modules (default: 4)
+    """;
+
+  private static final Job END_OF_INPUT = new Job(-1, null, null);
+  private static final Result END_OF_RESULTS = new Result(-1, null, null);
+
+  private final Path input;
+  private final Path output;
+  private final boolean csv;
+  private final boolean header;
+  private final int payloadColumn;
+  private final int nameColumn;
+  private final int threads;
+  private final int queueCapacity;
+  private final int scale;
+  private final int border;
+
+  private final AtomicLong rendered = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+  private BulkRenderer(Map<String, String> options) {
+    if (!options.containsKey("input") || !options.containsKey("output"))
+      throw new IllegalArgumentException("--input and --output are required");
+    input = Path.of(options.get("input"));
+    output = Path.of(options.get("output"));
+    String format = options.getOrDefault("format", "lines");
+    if (!format.equals("lines") && !format.equals("csv"))
+      throw new IllegalArgumentException("Unknown format: " + format);
+    csv = format.equals("csv");
+    header = options.containsKey("header");
+    payloadColumn = intOption(options, "column", 0);
+    nameColumn = intOption(options, "name-column", -1);
+    threads = intOption(options, "threads", Runtime.getRuntime().availableProcessors());
+    queueCapacity = intOption(options, "queue", 1024);
+    scale = intOption(options, "scale", 10);
+    border = intOption(options, "border", 4);
+    if (threads < 1 || queueCapacity < 1 || scale < 1 || border < 0)
+      throw new IllegalArgumentException("Numeric options out of range");
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(execute(args));
+  }
+
+  /**
+   * Runs one bulk render and returns the process exit status: 0 on success, 1 when any payload or the output
+   * failed, 2 for invalid arguments.
+   */
+  static int execute(String[] args) throws InterruptedException {
+    BulkRenderer renderer;
+    try {
+      renderer = new BulkRenderer(parseOptions(args));
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.print(USAGE);
+      return 2;
+    }
+    return renderer.run() ? 0 : 1;
+  }
+
+  private boolean run() throws InterruptedException {
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+        heapPools.add(pool);
+      }
+    }
+    long start = System.nanoTime();
+
+    // Opened before any thread starts: a writer that could not open its output would leave the workers
+    // blocked on a full results queue.
+    OutputSink sink;
+    try {
+      sink = OutputSink.open(output);
+    } catch (IOException e) {
+      System.err.println("Failed opening " + output + ": " + e.getMessage());
+      return false;
+    }
+
+    BlockingQueue<Job> jobs = new ArrayBlockingQueue<>(queueCapacity);
+    BlockingQueue<Result> results = new ArrayBlockingQueue<>(queueCapacity);
+
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Thread worker = new Thread(() -> renderLoop(jobs, results), "qrcode-render-" + i);
+      worker.start();
+      workers.add(worker);
+    }
+    IOException[] writeFailure = new IOException[1];
+    Thread writer = new Thread(() -> writeFailure[0] = writeLoop(sink, results), "qrcode-writer");
+    writer.start();
+
+    boolean ok = true;
+    try (PayloadReader reader = new PayloadReader(input, csv, header, payloadColumn, nameColumn)) {
+      PayloadReader.Payload payload;
+      while ((payload = reader.next()) != null)
+        jobs.put(new Job(payload.lineNumber(), payload.name(), payload.text()));
+    } catch (IOException e) {
+      System.err.println("Failed reading " + input + ": " + e.getMessage());
+      ok = false;
+    } finally {
+      for (int i = 0; i < threads; i++)
+        jobs.put(END_OF_INPUT);
+    }
+
+    for (Thread worker : workers)
+      worker.join();
+    results.put(END_OF_RESULTS);
+    writer.join();
+    if (writeFailure[0] != null) {
+      System.err.println("Failed writing " + output + ": " + writeFailure[0].getMessage());
+      ok = false;
+    }
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : heapPools)
+      peakHeap += pool.getPeakUsage().getUsed();
+    System.out.printf("rendered:   %d (%d failed) in %.2f s, %.0f codes/s%n",
+      rendered.get(), failed.get(), seconds, rendered.get() / seconds);
+    System.out.printf("written:    %.1f MiB, %.1f MiB/s%n",
+      bytesWritten.get() / 1048576.0, bytesWritten.get() / 1048576.0 / seconds);
+    System.out.printf("peak heap:  %.1f MiB%n", peakHeap / 1048576.0);
+    return ok && failed.get() == 0;
+  }
+
+  private void renderLoop(BlockingQueue<Job> jobs, BlockingQueue<Result> results) {
+    SvgQrCode svg = SvgQrCode.builder().scale(scale).border(border).build();
+    try {
+      while (true) {
+        Job job = jobs.take();
+        if (job == END_OF_INPUT)
+          return;
+        try {
+          byte[] contents = svg.generateSvgFile(job.text()).getBytes(StandardCharsets.UTF_8);
+          results.put(new Result(job.lineNumber(), fileName(job), contents));
+        } catch (IllegalArgumentException e) {
+          failed.incrementAndGet();
+          System.err.println("Line " + job.lineNumber() + ": " + e.getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Drains the results queue until the end marker even after a write fails, so the workers never block on it.
+   */
+  private IOException writeLoop(OutputSink sink, BlockingQueue<Result> results) {
+    IOException failure = null;
+    Set<String> written = new HashSet<>();
+    try (sink) {
+      while (true) {
+        Result result = results.take();
+        if (result == END_OF_RESULTS)
+          break;
+        if (failure != null)
+          continue;
+        try {
+          sink.write(uniqueName(written, result), result.contents());
+          rendered.incrementAndGet();
+          bytesWritten.addAndGet(result.contents().length);
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+    } catch (IOException e) {
+      return failure != null ? failure : e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return failure;
+  }
+
+  /**
+   * Zip entries must be unique and a directory would silently overwrite, so a repeated name, compared without
+   * case for case-insensitive file systems, becomes {@code name-<line>.svg}, with a counter if even that is taken.
+   */
+  private static String uniqueName(Set<String> written, Result result) {
+    String name = result.fileName();
+    String stem = name.substring(0, name.length() - ".svg".length());
+    for (int n = 1; !written.add(name.toLowerCase(Locale.ROOT)); n++)
+      name = stem + "-" + result.lineNumber() + (n == 1 ? "" : "-" + n) + ".svg";
+    return name;
+  }
+
+  private static String fileName(Job job) {
+    if (job.name() == null || job.name().isBlank())
+      return String.format("%08d.svg", job.lineNumber());
+    return job.name().replaceAll("[^A-Za-z0-9._-]", "_") + ".svg";
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("--"))
+        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+      String name = args[i].substring(2);
+      if (name.equals("header"))
+        options.put(name, "true");
+      else if (i + 1 < args.length)
+        options.put(name, args[++i]);
+      else
+        throw new IllegalArgumentException("Missing value for --" + name);
+    }
+    return options;
+  }
+
+  private static int intOption(Map<String, String> options, String name, int defaultValue) {
+    String value = options.get(name);
+    if (value == null)
+      return defaultValue;
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+  }
+
+  private record Job(long lineNumber, String name, String text) {
+  }
+
+  private record Result(long lineNumber, String fileName, byte[] contents) {
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Destination for rendered documents. Only ever called from the single writer thread.
+ */
+interface OutputSink extends Closeable {
+
+  void write(String fileName, byte[] contents) throws IOException;
+
+  static OutputSink open(Path target) throws IOException {
+    if (target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip"))
+      return new Zip(target);
+    return new Directory(target);
+  }
+
+  final class Directory implements OutputSink {
+
+    private final Path directory;
+
+    Directory(Path directory) throws IOException {
+      this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public void write(String fileName, byte[] contents) throws IOException {
+      Files.write(directory.resolve(fileName), contents);
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  final class Zip implements OutputSink {
+
+    private final ZipOutputStream zip;
+
+    Zip(Path archive) throws IOException {
+      Path parent = archive.toAbsolutePath().getParent();
+      if (parent != null)
+        Files.createDirectories(parent);
+      zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive), 1 << 16));
+    }
+
+    @Override
+    public void write(String fileName, byte[] contents) throws IOException {
+      zip.putNextEntry(new ZipEntry(fileName));
+      zip.write(contents);
+      zip.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+      zip.close();
+    }
+
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.cli;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams payloads from a line-delimited or CSV file through a buffered channel reader, so memory use does not
+ * depend on the file size. CSV fields follow RFC 4180 quoting, without embedded line breaks.
+ */
+final class PayloadReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final BufferedReader reader;
+  private final boolean csv;
+  private final int payloadColumn;
+  private final int nameColumn;
+  private long lineNumber;
+
+  PayloadReader(Path file, boolean csv, boolean skipHeader, int payloadColumn, int nameColumn) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    this.csv = csv;
+    this.payloadColumn = payloadColumn;
+    this.nameColumn = nameColumn;
+    if (skipHeader && reader.readLine() != null)
+      lineNumber++;
+  }
+
+  /**
+   * Returns the next payload, or {@code null} at end of input. Blank lines are skipped.
+   */
+  Payload next() throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (line.isBlank())
+        continue;
+      if (!csv)
+        return new Payload(lineNumber, null, line);
+
+      List<String> fields = parseCsvLine(line);
+      if (payloadColumn >= fields.size())
+        throw new IOException("Line " + lineNumber + " has no column " + payloadColumn);
+      String name = nameColumn >= 0 && nameColumn < fields.size() ? fields.get(nameColumn) : null;
+      return new Payload(lineNumber, name, fields.get(payloadColumn));
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  static List<String> parseCsvLine(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"') {
+          if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+            field.append('"');
+            i++;
+          } else
+            quoted = false;
+        } else
+          field.append(c);
+      } else if (c == '"')
+        quoted = true;
+      else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else
+        field.append(c);
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  record Payload(long lineNumber, String name, String text) {
+  }
+
+}
@@ -0,0 +1,476 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.cli;
+
+import br.com.lourenzo.qrcode.EpsSink;
+import br.com.lourenzo.qrcode.MatrixJsonSink;
+import br.com.lourenzo.qrcode.ModuleRenderer;
+import br.com.lourenzo.qrcode.PngSink;
+import br.com.lourenzo.qrcode.QrCode;
+import br.com.lourenzo.qrcode.QrSymbol;
+import br.com.lourenzo.qrcode.RenderPipeline;
+import br.com.lourenzo.qrcode.RenderSink;
+import br.com.lourenzo.qrcode.SvgQrCode;
+import br.com.lourenzo.qrcode.server.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a recorded payload file through one renderer at a fixed concurrency and reports throughput, latency
+ * percentiles, allocation and output size per operation, and the version, error correction level and mask mix
+ * of the workload, so releases can be compared on production-shaped load rather than on a few fixed payloads.
+ * <p>
+ * Payloads are held in memory and handed out in file order by a shared cursor that wraps around, so the length
+ * distribution, mode mix and repeats of the recording are preserved. A warmup run precedes the measured one.
+ * Allocation is the growth of every platform thread's allocation counter during the measured run; it is not
+ * reported with virtual threads, whose counters the JVM does not expose.
+ */
+public final class WorkloadReplay {
+
+  private static final String USAGE = """
+    Usage: WorkloadReplay --input <file> [options]
+      --format lines|csv     input format (default: lines)
+      --header               skip the first input line
+      --column <n>           CSV column holding the payload (default: 0)
+      --limit <n>            replay only the first n payloads
+      --renderer <name>      encode, svg, buffers, png, eps or json (default: svg)
+      --ecc <level>          low, medium, quartile or high; minimum for svg renderers (default: low)
+      --scale <n>            scale of svg, png and eps output (default: 10)
+      --border <n>           border in modules (default: 4)
+      --modules <shape>      circle, dot, square or diamond, for svg renderers (default: circle)
+      --compact              compact svg output
+      --micro                allow Micro QR Codes in svg output
+      --concurrency <n>      operations in flight (default: available processors)
+      --threads <kind>       platform or virtual (default: platform)
+      --warmup <seconds>     unmeasured run before the measured one (default: 10)
+      --duration <seconds>   measured run (default: 30)
+    """;
+
+  private static final Set<String> FLAGS = Set.of("header", "compact", "micro");
+
+  private final Path input;
+  private final boolean csv;
+  private final boolean header;
+  private final int payloadColumn;
+  private final int limit;
+  private final Renderer renderer;
+  private final QrCode.Ecc ecc;
+  private final int scale;
+  private final int border;
+  private final String modules;
+  private final boolean compact;
+  private final boolean micro;
+  private final int concurrency;
+  private final boolean virtualThreads;
+  private final int warmupSeconds;
+  private final int durationSeconds;
+
+  private final AtomicLong cursor = new AtomicLong();
+
+  private WorkloadReplay(Map<String, String> options) {
+    if (!options.containsKey("input"))
+      throw new IllegalArgumentException("--input is required");
+    input = Path.of(options.get("input"));
+    String format = options.getOrDefault("format", "lines");
+    if (!format.equals("lines") && !format.equals("csv"))
+      throw new IllegalArgumentException("Unknown format: " + format);
+    csv = format.equals("csv");
+    header = options.containsKey("header");
+    payloadColumn = intOption(options, "column", 0);
+    limit = intOption(options, "limit", Integer.MAX_VALUE);
+    renderer = enumOption(options, "renderer", Renderer.SVG);
+    ecc = enumOption(options, "ecc", QrCode.Ecc.LOW);
+    scale = intOption(options, "scale", 10);
+    border = intOption(options, "border", 4);
+    modules = options.getOrDefault("modules", "circle");
+    moduleRenderer(modules);
+    compact = options.containsKey("compact");
+    micro = options.containsKey("micro");
+    concurrency = intOption(options, "concurrency", Runtime.getRuntime().availableProcessors());
+    String threads = options.getOrDefault("threads", "platform");
+    if (!threads.equals("platform") && !threads.equals("virtual"))
+      throw new IllegalArgumentException("Unknown thread kind: " + threads);
+    virtualThreads = threads.equals("virtual");
+    warmupSeconds = intOption(options, "warmup", 10);
+    durationSeconds = intOption(options, "duration", 30);
+    if (payloadColumn < 0 || limit < 1 || scale < 1 || border < 0 || concurrency < 1 || warmupSeconds < 0
+      || durationSeconds < 1)
+      throw new IllegalArgumentException("Numeric options out of range");
+  }
+
+  public static void main(String[] args) throws Exception {
+    WorkloadReplay replay;
+    try {
+      replay = new WorkloadReplay(parseOptions(args));
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.print(USAGE);
+      System.exit(2);
+      return;
+    }
+    System.exit(replay.run() ? 0 : 1);
+  }
+
+  private boolean run() throws InterruptedException, ExecutionException {
+    List<String> payloads = new ArrayList<>();
+    try (PayloadReader reader = new PayloadReader(input, csv, header, payloadColumn, -1)) {
+      PayloadReader.Payload payload;
+      while (payloads.size() < limit && (payload = reader.next()) != null)
+        payloads.add(payload.text());
+    } catch (IOException e) {
+      System.err.println("Failed reading " + input + ": " + e.getMessage());
+      return false;
+    }
+    if (payloads.isEmpty()) {
+      System.err.println("No payloads in " + input);
+      return false;
+    }
+    String[] workload = payloads.toArray(String[]::new);
+
+    ExecutorService executor = newExecutor();
+    try {
+      runPhase(executor, workload, TimeUnit.SECONDS.toNanos(warmupSeconds));
+      Result result = runPhase(executor, workload, TimeUnit.SECONDS.toNanos(durationSeconds));
+      report(workload, result);
+    } finally {
+      executor.shutdown();
+    }
+    return true;
+  }
+
+  private Result runPhase(ExecutorService executor, String[] workload, long nanos)
+    throws InterruptedException, ExecutionException {
+    Map<Long, Long> allocatedBefore = virtualThreads ? null : allocatedBytes();
+    long start = System.nanoTime();
+    long deadline = start + nanos;
+    List<Future<Worker>> futures = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      Worker worker = new Worker(newOperation());
+      futures.add(executor.submit(() -> worker.run(workload, deadline), worker));
+    }
+
+    Result result = new Result();
+    for (Future<Worker> future : futures) {
+      Worker worker = future.get();
+      result.latency.add(worker.latency);
+      result.failures += worker.failures;
+      result.outputBytes += worker.outputBytes;
+    }
+    result.seconds = (System.nanoTime() - start) / 1e9;
+
+    Map<Long, Long> allocatedAfter = allocatedBefore == null ? null : allocatedBytes();
+    if (allocatedAfter != null) {
+      result.allocatedBytes = 0;
+      for (Map.Entry<Long, Long> entry : allocatedAfter.entrySet())
+        result.allocatedBytes += entry.getValue() - allocatedBefore.getOrDefault(entry.getKey(), 0L);
+    }
+    return result;
+  }
+
+  private void report(String[] workload, Result result) {
+    Set<String> distinct = new HashSet<>();
+    long chars = 0;
+    for (String payload : workload) {
+      distinct.add(payload);
+      chars += payload.length();
+    }
+    long operations = result.latency.getCount();
+    LatencyHistogram latency = result.latency;
+
+    String libraryVersion = SvgQrCode.class.getPackage().getImplementationVersion();
+    System.out.printf("runtime:     Java %s, library %s (output version %d)%n", Runtime.version(),
+      libraryVersion != null ? libraryVersion : "unpackaged build", SvgQrCode.OUTPUT_VERSION);
+    System.out.printf("workload:    %d payloads (%d distinct), mean length %.1f chars%n",
+      workload.length, distinct.size(), (double) chars / workload.length);
+    System.out.printf("renderer:    %s, concurrency %d on %s threads%n", renderer.name().toLowerCase(Locale.ROOT),
+      concurrency, virtualThreads ? "virtual" : "platform");
+    System.out.printf("operations:  %d (%d failed) in %.1f s, %.0f ops/s%n",
+      operations, result.failures, result.seconds, operations / result.seconds);
+    System.out.printf("latency us:  p50=%d p90=%d p99=%d p99.9=%d max=%d mean=%.1f%n",
+      latency.getPercentileMicros(50), latency.getPercentileMicros(90), latency.getPercentileMicros(99),
+      latency.getPercentileMicros(99.9), latency.getMaxMicros(), latency.getMeanMicros());
+    if (result.allocatedBytes >= 0 && operations > 0)
+      System.out.printf("allocated:   %.0f bytes/op%n", (double) result.allocatedBytes / operations);
+    else if (virtualThreads)
+      System.out.println("allocated:   not available for virtual threads");
+    else
+      System.out.println("allocated:   not available on this JVM");
+    if (result.outputBytes > 0)
+      System.out.printf("output:      %.0f bytes/op%n", (double) result.outputBytes / operations);
+    printDistribution(workload);
+  }
+
+  /**
+   * Encodes every payload once, as the renderer would, and prints how the workload spreads over versions,
+   * error correction levels and masks.
+   */
+  private void printDistribution(String[] workload) {
+    SvgQrCode svg = renderer.svg ? newSvgQrCode() : null;
+    int[] versions = new int[QrCode.MAX_VERSION + 1];
+    int[] microVersions = new int[5];
+    int[] levels = new int[QrCode.Ecc.values().length];
+    int[] masks = new int[8];
+    int encoded = 0;
+    for (String payload : workload) {
+      QrSymbol symbol;
+      try {
+        symbol = svg != null ? svg.encodeSymbol(payload) : QrCode.encodeText(payload, ecc);
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+      (symbol.isMicro() ? microVersions : versions)[symbol.getVersion()]++;
+      levels[symbol.getErrorCorrectionLevel().ordinal()]++;
+      masks[symbol.getMask()]++;
+      encoded++;
+    }
+    if (encoded == 0)
+      return;
+
+    StringBuilder line = new StringBuilder("versions:   ");
+    for (int i = 1; i < microVersions.length; i++)
+      appendShare(line, "M" + i, microVersions[i], encoded);
+    for (int i = QrCode.MIN_VERSION; i < versions.length; i++)
+      appendShare(line, Integer.toString(i), versions[i], encoded);
+    System.out.println(line);
+    line.setLength(0);
+    line.append("ecc:        ");
+    for (QrCode.Ecc level : QrCode.Ecc.values())
+      appendShare(line, level.name(), levels[level.ordinal()], encoded);
+    System.out.println(line);
+    line.setLength(0);
+    line.append("masks:      ");
+    for (int i = 0; i < masks.length; i++)
+      appendShare(line, Integer.toString(i), masks[i], encoded);
+    System.out.println(line);
+  }
+
+  private static void appendShare(StringBuilder line, String label, int count, int total) {
+    if (count != 0)
+      line.append(String.format(Locale.ROOT, " %s=%.1f%%", label, count * 100.0 / total));
+  }
+
+  private Operation newOperation() {
+    return switch (renderer) {
+      case ENCODE -> text -> {
+        QrCode.encodeText(text, ecc);
+        return 0;
+      };
+      case SVG -> {
+        SvgQrCode svg = newSvgQrCode();
+        yield text -> svg.generateSvgFile(text).length();
+      }
+      case BUFFERS -> {
+        SvgQrCode svg = newSvgQrCode();
+        yield text -> {
+          long length = 0;
+          for (ByteBuffer buffer : svg.generateSvgBuffers(text))
+            length += buffer.remaining();
+          return length;
+        };
+      }
+      case PNG, EPS, JSON -> {
+        CountingOutputStream out = new CountingOutputStream();
+        RenderSink sink = switch (renderer) {
+          case PNG -> new PngSink(out, scale, border);
+          case EPS -> new EpsSink(out, scale, border);
+          default -> new MatrixJsonSink(out);
+        };
+        RenderPipeline pipeline = new RenderPipeline().add(sink);
+        yield text -> {
+          long before = out.count;
+          pipeline.render(QrCode.encodeText(text, ecc));
+          return out.count - before;
+        };
+      }
+    };
+  }
+
+  private SvgQrCode newSvgQrCode() {
+    return SvgQrCode.builder()
+      .scale(scale)
+      .border(border)
+      .minErrorCorrectionLevel(ecc)
+      .moduleRenderer(moduleRenderer(modules))
+      .compact(compact)
+      .allowMicro(micro)
+      .build();
+  }
+
+  private static ModuleRenderer moduleRenderer(String shape) {
+    return switch (shape) {
+      case "circle" -> ModuleRenderer.circle();
+      case "dot" -> ModuleRenderer.dot();
+      case "square" -> ModuleRenderer.square();
+      case "diamond" -> ModuleRenderer.diamond();
+      default -> throw new IllegalArgumentException("Unknown module shape: " + shape);
+    };
+  }
+
+  private ExecutorService newExecutor() {
+    return virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(concurrency);
+  }
+
+  /**
+   * Bytes allocated so far by each live platform thread, or null when the JVM does not track it. Virtual
+   * threads are not among {@link ThreadMXBean#getAllThreadIds()}, so this only covers platform-thread runs.
+   */
+  private static Map<Long, Long> allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean allocation)
+      || !allocation.isThreadAllocatedMemorySupported())
+      return null;
+    allocation.setThreadAllocatedMemoryEnabled(true);
+    long[] ids = threads.getAllThreadIds();
+    long[] bytes = allocation.getThreadAllocatedBytes(ids);
+    Map<Long, Long> result = new HashMap<>();
+    for (int i = 0; i < ids.length; i++) {
+      if (bytes[i] >= 0)
+        result.put(ids[i], bytes[i]);
+    }
+    return result;
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("--"))
+        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+      String name = args[i].substring(2);
+      if (FLAGS.contains(name))
+        options.put(name, "true");
+      else if (i + 1 < args.length)
+        options.put(name, args[++i]);
+      else
+        throw new IllegalArgumentException("Missing value for --" + name);
+    }
+    return options;
+  }
+
+  private static int intOption(Map<String, String> options, String name, int defaultValue) {
+    String value = options.get(name);
+    if (value == null)
+      return defaultValue;
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+  }
+
+  private static <E extends Enum<E>> E enumOption(Map<String, String> options, String name, E defaultValue) {
+    String value = options.get(name);
+    if (value == null)
+      return defaultValue;
+    try {
+      return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+  }
+
+  private enum Renderer {
+    ENCODE(false), SVG(true), BUFFERS(true), PNG(false), EPS(false), JSON(false);
+
+    final boolean svg;
+
+    Renderer(boolean svg) {
+      this.svg = svg;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Operation {
+    /**
+     * Renders one payload and returns the size of the output, or 0 if it produces none.
+     */
+    long apply(String text) throws IOException;
+  }
+
+  private final class Worker {
+
+    private final Operation operation;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long failures;
+    private long outputBytes;
+
+    Worker(Operation operation) {
+      this.operation = operation;
+    }
+
+    void run(String[] workload, long deadline) {
+      long now = System.nanoTime();
+      while (now < deadline) {
+        String text = workload[(int) (cursor.getAndIncrement() % workload.length)];
+        try {
+          outputBytes += operation.apply(text);
+        } catch (IllegalArgumentException e) {
+          failures++;
+          now = System.nanoTime();
+          continue;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        long end = System.nanoTime();
+        latency.recordNanos(end - now);
+        now = end;
+      }
+    }
+
+  }
+
+  private static final class Result {
+
+    final LatencyHistogram latency = new LatencyHistogram();
+    long failures;
+    long outputBytes;
+    long allocatedBytes = -1;
+    double seconds;
+
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+
+  }
+
+}
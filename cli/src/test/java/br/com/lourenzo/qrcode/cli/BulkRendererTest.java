@@ -0,0 +1,122 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.cli;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkRendererTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void rendersEveryLine() throws Exception {
+    Path input = lines("first", "second", "third");
+    File output = new File(folder.getRoot(), "out");
+
+    assertEquals(0, BulkRenderer.execute(args("--input", input, "--output", output)));
+    assertEquals(Set.of("00000001.svg", "00000002.svg", "00000003.svg"), names(output));
+    String svg = Files.readString(output.toPath().resolve("00000002.svg"));
+    assertTrue(svg.startsWith("<?xml") && svg.endsWith("</svg>\n"));
+  }
+
+  @Test(timeout = 30_000)
+  public void unopenableOutputFailsInsteadOfHanging() throws Exception {
+    String[] payloads = new String[200];
+    Arrays.fill(payloads, "payload");
+    Path input = lines(payloads);
+    File output = folder.newFile("taken");
+
+    assertEquals(1, BulkRenderer.execute(
+      args("--input", input, "--output", output, "--threads", "2", "--queue", "1")));
+  }
+
+  @Test(timeout = 30_000)
+  public void missingInputFails() throws Exception {
+    File output = new File(folder.getRoot(), "out.zip");
+
+    assertEquals(1, BulkRenderer.execute(
+      args("--input", folder.getRoot().toPath().resolve("absent.txt"), "--output", output, "--queue", "1")));
+  }
+
+  @Test
+  public void invalidArgumentsExitWithTwo() throws Exception {
+    assertEquals(2, BulkRenderer.execute(new String[] {"--input", "in.txt"}));
+    assertEquals(2, BulkRenderer.execute(new String[] {"--input", "in.txt", "--output", "out", "--threads", "0"}));
+  }
+
+  @Test
+  public void repeatedNamesInArchiveGetLineNumbers() throws Exception {
+    Path input = lines("a,dup", "b,dup", "c,DUP", "d,dup-2", "e,other");
+    File output = new File(folder.getRoot(), "out.zip");
+
+    assertEquals(0, BulkRenderer.execute(
+      args("--input", input, "--output", output, "--format", "csv", "--name-column", "1", "--threads", "1")));
+    List<String> entries = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(output.toPath()))) {
+      for (ZipEntry entry; (entry = zip.getNextEntry()) != null; )
+        entries.add(entry.getName());
+    }
+    assertEquals(List.of("dup.svg", "dup-2.svg", "DUP-3.svg", "dup-2-4.svg", "other.svg"), entries);
+  }
+
+  @Test
+  public void repeatedNamesInDirectoryAreNotOverwritten() throws Exception {
+    Path input = lines("a,dup", "b,dup", "c,dup");
+    File output = new File(folder.getRoot(), "out");
+
+    assertEquals(0, BulkRenderer.execute(
+      args("--input", input, "--output", output, "--format", "csv", "--name-column", "1")));
+    assertEquals(3, names(output).size());
+    assertTrue(names(output).contains("dup.svg"));
+  }
+
+  private Path lines(String... lines) throws IOException {
+    Path input = folder.newFile().toPath();
+    Files.write(input, List.of(lines), StandardCharsets.UTF_8);
+    return input;
+  }
+
+  private static String[] args(Object... args) {
+    String[] result = new String[args.length];
+    for (int i = 0; i < args.length; i++)
+      result[i] = args[i].toString();
+    return result;
+  }
+
+  private static Set<String> names(File directory) {
+    Set<String> names = new TreeSet<>();
+    for (String name : directory.list())
+      names.add(name);
+    return names;
+  }
+
+}
@@ -10,6 +10,8 @@ plugins {
   `java-library`
 }
 
+version = "1.0.0"
+
 repositories {
   // Use Maven Central for resolving dependencies.
   mavenCentral()
@@ -17,6 +19,7 @@ repositories {
 
 dependencies {
   implementation("org.projectlombok:lombok:1.18.22")
+  annotationProcessor("org.projectlombok:lombok:1.18.22")
   // Use JUnit test framework.
   testImplementation(libs.junit)
 
@@ -33,3 +36,13 @@ java {
     languageVersion.set(JavaLanguageVersion.of(17))
   }
 }
+
+// Lets the server and the tools report and key on the library build.
+tasks.jar {
+  manifest {
+    attributes(
+      "Implementation-Title" to "qrcode-svg",
+      "Implementation-Version" to project.version
+    )
+  }
+}
@@ -17,11 +17,17 @@ import java.util.Objects;
 
 final class BitBuffer {
 
-  int[] data;
+  long[] data;
   int bitLength;
 
   public BitBuffer() {
-    data = new int[64];
+    this(2048);
+  }
+
+  public BitBuffer(int capacityBits) {
+    if (capacityBits < 0)
+      throw new IllegalArgumentException("Capacity out of range");
+    data = new long[Math.max((int) ((capacityBits + 63L) >>> 6), 1)];
     bitLength = 0;
   }
 
@@ -30,7 +36,7 @@ final class BitBuffer {
       throw new IllegalStateException("Data is not a whole number of bytes");
     byte[] result = new byte[bitLength / 8];
     for (int i = 0; i < result.length; i++)
-      result[i] = (byte) (data[i >>> 2] >>> (~i << 3));
+      result[i] = (byte) (data[i >>> 3] >>> (~i << 3));
     return result;
   }
 
@@ -40,52 +46,57 @@ final class BitBuffer {
     if (len > Integer.MAX_VALUE - bitLength)
       throw new IllegalStateException("Maximum length reached");
 
-    if (bitLength + len + 1 > data.length << 5)
+    if (bitLength + len + 1 > (long) data.length << 6)
       data = Arrays.copyOf(data, data.length * 2);
-    assert bitLength + len <= data.length << 5;
+    assert bitLength + len <= (long) data.length << 6;
 
-    int remain = 32 - (bitLength & 0x1F);
+    int remain = 64 - (bitLength & 0x3F);
     if (remain < len) {
-      data[bitLength >>> 5] |= val >>> (len - remain);
+      data[bitLength >>> 6] |= val >>> (len - remain);
       bitLength += remain;
-      assert (bitLength & 0x1F) == 0;
+      assert (bitLength & 0x3F) == 0;
       len -= remain;
       val &= (1 << len) - 1;
-      remain = 32;
+      remain = 64;
     }
-    data[bitLength >>> 5] |= val << (remain - len);
+    data[bitLength >>> 6] |= (long) val << (remain - len);
     bitLength += len;
   }
 
-  public void appendBits(int[] vals, int len) {
+  public void appendBits(long[] vals, int len) {
     Objects.requireNonNull(vals);
     if (len == 0)
       return;
-    if (len < 0 || len > vals.length * 32L)
+    if (len < 0 || len > vals.length * 64L)
       throw new IllegalArgumentException("Value out of range");
-    int wholeWords = len / 32;
-    int tailBits = len % 32;
+    int wholeWords = len / 64;
+    int tailBits = len % 64;
     if (tailBits > 0 && vals[wholeWords] << tailBits != 0)
       throw new IllegalArgumentException("Last word must have low bits clear");
     if (len > Integer.MAX_VALUE - bitLength)
       throw new IllegalStateException("Maximum length reached");
 
-    while (bitLength + len > data.length * 32)
+    while (bitLength + len > (long) data.length * 64)
       data = Arrays.copyOf(data, data.length * 2);
 
-    int shift = bitLength % 32;
+    int shift = bitLength % 64;
     if (shift == 0) {
-      System.arraycopy(vals, 0, data, bitLength / 32, (len + 31) / 32);
+      System.arraycopy(vals, 0, data, bitLength / 64, (len + 63) / 64);
       bitLength += len;
     } else {
       for (int i = 0; i < wholeWords; i++) {
-        int word = vals[i];
-        data[bitLength >>> 5] |= word >>> shift;
-        bitLength += 32;
-        data[bitLength >>> 5] = word << (32 - shift);
+        long word = vals[i];
+        data[bitLength >>> 6] |= word >>> shift;
+        bitLength += 64;
+        data[bitLength >>> 6] = word << (64 - shift);
+      }
+      if (tailBits > 0) {
+        long word = vals[wholeWords];
+        data[bitLength >>> 6] |= word >>> shift;
+        if (tailBits > 64 - shift)
+          data[(bitLength >>> 6) + 1] = word << (64 - shift);
+        bitLength += tailBits;
       }
-      if (tailBits > 0)
-        appendBits(vals[wholeWords] >>> (32 - tailBits), tailBits);
     }
   }
 
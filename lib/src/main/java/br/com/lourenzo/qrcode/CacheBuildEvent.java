@@ -0,0 +1,36 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("br.com.lourenzo.qrcode.CacheBuild")
+@Label("QR Code Cache Build")
+@Category("QR Code")
+@Description("Construction of a memoized value such as a QrTemplate or ReedSolomonGenerator")
+final class CacheBuildEvent extends jdk.jfr.Event {
+
+  @Label("Cache")
+  String cache;
+
+  @Label("Key")
+  String key;
+
+  @Label("Rebuild")
+  @Description("The value was built before and its soft reference was cleared by the garbage collector")
+  boolean rebuild;
+
+}
@@ -0,0 +1,161 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Zigzag placement of codeword bits as runs within column pairs. A run covers consecutive rows of one column
+ * pair, in the direction the pair is scanned, whose data cells (right, left or both) are the same, so a
+ * version 40 symbol needs a few hundred runs instead of an index per bit.
+ */
+final class CodewordPlacement {
+
+  private static final int UPWARD = 1 << 24;
+  private static final int RIGHT_CELL = 1 << 25;
+  private static final int LEFT_CELL = 1 << 26;
+
+  private final int rowWords;
+  private final int[] runs;
+  final int bitCount;
+
+  /**
+   * @param skipColumn column that is not part of any pair (the vertical timing pattern), or -1
+   * @param bitCount   number of data modules to fill; trailing remainder modules are left out
+   */
+  CodewordPlacement(int size, long[] isFunction, int skipColumn, int bitCount) {
+    rowWords = QrTemplate.getRowWords(size);
+    this.bitCount = bitCount;
+    int[] result = new int[16];
+    int n = 0;
+    int placed = 0;
+    boolean upward = true;
+    for (int right = size - 1; right >= 1 && placed < bitCount; right -= 2, upward = !upward) {
+      if (right == skipColumn)
+        right--;
+      for (int vert = 0; vert < size && placed < bitCount; ) {
+        int y = upward ? size - 1 - vert : vert;
+        int cells = getCells(isFunction, right, y);
+        int length = 1;
+        while (vert + length < size && getCells(isFunction, right, upward ? y - length : y + length) == cells)
+          length++;
+        vert += length;
+        if (cells == 0)
+          continue;
+        int rowBits = Integer.bitCount(cells);
+        int rows = Math.min(length, (bitCount - placed) / rowBits);
+        if (n + 2 > result.length)
+          result = Arrays.copyOf(result, result.length * 2);
+        if (rows > 0) {
+          result[n++] = right | y << 8 | rows << 16 | (upward ? UPWARD : 0) | cells << 25;
+          placed += rows * rowBits;
+        }
+        if (rows < length && placed < bitCount) {
+          int partialY = upward ? y - rows : y + rows;
+          result[n++] = right | partialY << 8 | 1 << 16 | (upward ? UPWARD : 0) | RIGHT_CELL;
+          placed++;
+        }
+      }
+    }
+    assert placed == bitCount;
+    runs = Arrays.copyOf(result, n);
+  }
+
+  private int getCells(long[] isFunction, int right, int y) {
+    int row = y * rowWords;
+    return (~QrCode.getBit(isFunction[row + (right >>> 6)], right) & 1)
+      | (~QrCode.getBit(isFunction[row + ((right - 1) >>> 6)], right - 1) & 1) << 1;
+  }
+
+  /**
+   * ORs {@code bitCount} bits, most significant first, into the data modules of a row-aligned grid. The
+   * bits are consumed a 64-bit word at a time.
+   */
+  void draw(long[] bits, long[] modules) {
+    long word = 0;
+    int next = 0;
+    int avail = 0;
+    for (int run : runs) {
+      int right = run & 0xFF;
+      int step = (run & UPWARD) != 0 ? -rowWords : rowWords;
+      int rightIndex = right >>> 6;
+      int leftIndex = (right - 1) >>> 6;
+      boolean hasRight = (run & RIGHT_CELL) != 0;
+      boolean hasLeft = (run & LEFT_CELL) != 0;
+      for (int row = (run >>> 8 & 0xFF) * rowWords, end = row + (run >>> 16 & 0xFF) * step; row != end; row += step) {
+        if (hasRight) {
+          if (avail == 0) {
+            word = bits[next++];
+            avail = 64;
+          }
+          modules[row + rightIndex] |= (word >>> 63) << right;
+          word <<= 1;
+          avail--;
+        }
+        if (hasLeft) {
+          if (avail == 0) {
+            word = bits[next++];
+            avail = 64;
+          }
+          modules[row + leftIndex] |= (word >>> 63) << (right - 1);
+          word <<= 1;
+          avail--;
+        }
+      }
+    }
+  }
+
+  void draw(byte[] codewords, long[] modules) {
+    if (codewords.length * 8 != bitCount)
+      throw new IllegalArgumentException();
+    long[] bits = new long[(codewords.length + 7) / 8];
+    ByteBuffer buf = ByteBuffer.wrap(codewords);
+    int wholeWords = codewords.length / 8;
+    for (int i = 0; i < wholeWords; i++)
+      bits[i] = buf.getLong(i * 8);
+    for (int i = wholeWords * 8; i < codewords.length; i++)
+      bits[i >>> 3] |= (codewords[i] & 0xFFL) << (~i << 3);
+    draw(bits, modules);
+  }
+
+  BitSet getCodewordsWithinRadius(int size, int radius) {
+    double center = (size - 1) / 2d;
+    double limit = (double) radius * radius;
+    BitSet result = new BitSet(bitCount / 8);
+    int i = 0;
+    for (int run : runs) {
+      int right = run & 0xFF;
+      int y = run >>> 8 & 0xFF;
+      int step = (run & UPWARD) != 0 ? -1 : 1;
+      for (int k = run >>> 16 & 0xFF; k > 0; k--, y += step) {
+        double dy = y - center;
+        if ((run & RIGHT_CELL) != 0) {
+          double dx = right - center;
+          if (dx * dx + dy * dy <= limit)
+            result.set(i >>> 3);
+          i++;
+        }
+        if ((run & LEFT_CELL) != 0) {
+          double dx = right - 1 - center;
+          if (dx * dx + dy * dy <= limit)
+            result.set(i >>> 3);
+          i++;
+        }
+      }
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Encodes whatever is written to it as a {@code data:} URI appended to the target, either base64 or
+ * percent-encoded, holding no more than a small character buffer. Closing the stream completes the
+ * URI and flushes the target but does not close it.
+ * <p>
+ * The percent-encoded form is meant for markup: like common SVG data URI minifiers it leaves spaces and
+ * angle brackets as they are and turns double quotes into single quotes, so the URI fits in a
+ * double-quoted HTML attribute. Markup whose attribute values contain quotes must use base64.
+ */
+public final class DataUriOutputStream extends OutputStream {
+
+  private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private static final int BUFFER_CHARS = 4096;
+
+  private static final boolean[] URL_SAFE = new boolean[128];
+
+  static {
+    for (char c : "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-._~!$()*+,;=:@/? <>".toCharArray())
+      URL_SAFE[c] = true;
+  }
+
+  private final Appendable out;
+  private final boolean base64;
+  private final StringBuilder buffer = new StringBuilder(BUFFER_CHARS + 4);
+
+  private int pending;
+  private int pendingBytes;
+  private boolean closed;
+
+  public DataUriOutputStream(Appendable out, String mediaType, boolean base64) throws IOException {
+    this.out = Objects.requireNonNull(out);
+    this.base64 = base64;
+    out.append("data:").append(Objects.requireNonNull(mediaType)).append(base64 ? ";base64," : ",");
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (closed)
+      throw new IOException("Stream closed");
+    b &= 0xFF;
+    if (base64) {
+      pending = pending << 8 | b;
+      if (++pendingBytes == 3) {
+        buffer
+          .append(BASE64[pending >>> 18])
+          .append(BASE64[pending >>> 12 & 0x3F])
+          .append(BASE64[pending >>> 6 & 0x3F])
+          .append(BASE64[pending & 0x3F]);
+        pending = 0;
+        pendingBytes = 0;
+      }
+    } else if (b < 0x80 && URL_SAFE[b])
+      buffer.append((char) b);
+    else if (b == '"')
+      buffer.append('\'');
+    else
+      buffer.append('%').append(HEX[b >>> 4]).append(HEX[b & 0xF]);
+    if (buffer.length() >= BUFFER_CHARS)
+      drain();
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    for (int i = off; i < off + len; i++)
+      write(b[i]);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    if (out instanceof Flushable flushable)
+      flushable.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+    if (pendingBytes == 1) {
+      buffer.append(BASE64[pending >>> 2]).append(BASE64[(pending & 0x3) << 4]).append("==");
+    } else if (pendingBytes == 2) {
+      buffer
+        .append(BASE64[pending >>> 10])
+        .append(BASE64[pending >>> 4 & 0x3F])
+        .append(BASE64[(pending & 0xF) << 2])
+        .append('=');
+    }
+    flush();
+    closed = true;
+  }
+
+  private void drain() throws IOException {
+    out.append(buffer);
+    buffer.setLength(0);
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("br.com.lourenzo.qrcode.Encode")
+@Label("QR Code Encode")
+@Category("QR Code")
+@Description("Segmentation, version selection, error correction and masking of a single QR Code")
+@StackTrace(false)
+final class EncodeEvent extends jdk.jfr.Event {
+
+  @Label("Version")
+  int version;
+
+  @Label("Error Correction Level")
+  String errorCorrectionLevel;
+
+  @Label("Mask")
+  int mask;
+
+  @Label("Payload Length")
+  @Description("Number of characters (or bytes, in byte mode) across all segments")
+  int payloadLength;
+
+  @Label("Size")
+  @Description("Modules per side")
+  int size;
+
+  @Label("Segmentation")
+  @Timespan
+  long segmentationNanos;
+
+  @Label("Version Selection")
+  @Timespan
+  long versionSelectionNanos;
+
+  @Label("ECC and Interleave")
+  @Timespan
+  long eccNanos;
+
+  @Label("Draw Codewords")
+  @Timespan
+  long drawCodewordsNanos;
+
+  @Label("Mask Search")
+  @Timespan
+  long maskSearchNanos;
+
+  static EncodeEvent started() {
+    EncodeEvent event = new EncodeEvent();
+    event.begin();
+    return event;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Writes an Encapsulated PostScript vector image with one filled rectangle per horizontal run of
+ * dark modules, in module units scaled to {@code scale} points per module.
+ */
+public final class EpsSink implements RenderSink {
+
+  private final OutputStream out;
+  private final int scale;
+  private final int border;
+
+  private Writer eps;
+  private int size;
+
+  public EpsSink(OutputStream out, int scale, int border) {
+    if (scale < 1 || border < 0)
+      throw new IllegalArgumentException("Invalid scale or border");
+    this.out = Objects.requireNonNull(out);
+    this.scale = scale;
+    this.border = border;
+  }
+
+  @Override
+  public void begin(QrSymbol symbol) throws IOException {
+    size = symbol.getSize();
+    int width = (size + 2 * border) * scale;
+    eps = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+    eps.write("%!PS-Adobe-3.0 EPSF-3.0\n");
+    eps.write("%%BoundingBox: 0 0 " + width + " " + width + "\n");
+    eps.write("%%EndComments\n");
+    eps.write("/R { rectfill } bind def\n");
+    eps.write(scale + " " + scale + " scale\n");
+    eps.write("0 setgray\n");
+  }
+
+  @Override
+  public void row(int y, long[] modules) throws IOException {
+    int top = size + border - 1 - y;
+    for (int x = 0; x < size; x++) {
+      if (QrCode.getBit(modules[x >>> 6], x) == 0)
+        continue;
+      int start = x;
+      while (x + 1 < size && QrCode.getBit(modules[(x + 1) >>> 6], x + 1) != 0)
+        x++;
+      eps.write((start + border) + " " + top + " " + (x + 1 - start) + " 1 R\n");
+    }
+  }
+
+  @Override
+  public void end() throws IOException {
+    eps.write("%%EOF\n");
+    eps.flush();
+    eps = null;
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+/**
+ * Shape of the finder patterns drawn by a {@link SvgQrCode} with {@code useCustomFinderPatterns}. Finder
+ * markup is rendered once per configuration and shared by every code.
+ */
+@FunctionalInterface
+public interface FinderRenderer {
+
+  /**
+   * Returns the markup of one 7 by 7 module finder pattern whose top-left corner is at ({@code x}, {@code y})
+   * and whose modules are {@code unit} user units per side.
+   */
+  String markup(int x, int y, int unit);
+
+  static FinderRenderer rounded() {
+    return new SvgShapes.RoundedFinder();
+  }
+
+  static FinderRenderer square() {
+    return new SvgShapes.SquareFinder();
+  }
+
+  static FinderRenderer circle() {
+    return new SvgShapes.CircleFinder();
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Writes the plain module matrix as JSON, one string of {@code 0} and {@code 1} per row:
+ * {@code {"version":1,"micro":false,"errorCorrectionLevel":"LOW","mask":0,"size":21,"modules":[...]}}.
+ */
+public final class MatrixJsonSink implements RenderSink {
+
+  private final OutputStream out;
+
+  private Writer json;
+  private char[] line;
+
+  public MatrixJsonSink(OutputStream out) {
+    this.out = Objects.requireNonNull(out);
+  }
+
+  @Override
+  public void begin(QrSymbol symbol) throws IOException {
+    json = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+    json.write("{\"version\":" + symbol.getVersion()
+      + ",\"micro\":" + symbol.isMicro()
+      + ",\"errorCorrectionLevel\":\"" + symbol.getErrorCorrectionLevel().name()
+      + "\",\"mask\":" + symbol.getMask()
+      + ",\"size\":" + symbol.getSize()
+      + ",\"modules\":[");
+    line = new char[symbol.getSize() + 2];
+    line[0] = '"';
+    line[line.length - 1] = '"';
+  }
+
+  @Override
+  public void row(int y, long[] modules) throws IOException {
+    for (int x = 0; x < line.length - 2; x++)
+      line[x + 1] = (char) ('0' + QrCode.getBit(modules[x >>> 6], x));
+    if (y > 0)
+      json.write(',');
+    json.write(line);
+  }
+
+  @Override
+  public void end() throws IOException {
+    json.write("]}\n");
+    json.flush();
+    json = null;
+  }
+
+}
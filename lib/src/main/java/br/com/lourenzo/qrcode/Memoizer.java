@@ -21,11 +21,13 @@ import java.util.function.Function;
 
 final class Memoizer<T, R> {
 
+  private final String name;
   private final Function<T, R> function;
   Map<T, SoftReference<R>> cache = new ConcurrentHashMap<>();
   private final Set<T> pending = new HashSet<>();
 
-  public Memoizer(Function<T, R> func) {
+  public Memoizer(String name, Function<T, R> func) {
+    this.name = name;
     function = func;
   }
 
@@ -35,18 +37,26 @@ final class Memoizer<T, R> {
       SoftReference<R> ref = cache.get(arg);
       if (ref != null) {
         R result = ref.get();
-        if (result != null) return result;
+        if (result != null) {
+          QrMetrics.cacheAccess(name, true);
+          return result;
+        }
       }
     }
 
 
+    boolean rebuild = false;
     while (true) {
       synchronized (this) {
         SoftReference<R> ref = cache.get(arg);
         if (ref != null) {
           R result = ref.get();
-          if (result != null) return result;
+          if (result != null) {
+            QrMetrics.cacheAccess(name, true);
+            return result;
+          }
           cache.remove(arg);
+          rebuild = true;
         }
         assert !cache.containsKey(arg);
 
@@ -60,9 +70,18 @@ final class Memoizer<T, R> {
       }
     }
 
+    QrMetrics.cacheAccess(name, false);
+    CacheBuildEvent event = new CacheBuildEvent();
+    event.begin();
     try {
       R result = function.apply(arg);
       cache.put(arg, new SoftReference<>(result));
+      if (event.shouldCommit()) {
+        event.cache = name;
+        event.key = String.valueOf(arg);
+        event.rebuild = rebuild;
+        event.commit();
+      }
       return result;
     } finally {
       synchronized (this) {
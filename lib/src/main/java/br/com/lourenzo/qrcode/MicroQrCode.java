@@ -0,0 +1,291 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Micro QR Code symbols M1 to M4 (versions 1 to 4), 11 to 17 modules wide with a single finder
+ * pattern. M1 only offers error detection and is reported as {@link QrCode.Ecc#LOW}; HIGH is never
+ * available and QUARTILE only on M4.
+ */
+public final class MicroQrCode implements QrSymbol {
+
+  public static MicroQrCode encodeText(CharSequence text, QrCode.Ecc ecl) {
+    return encodeSegments(QrSegment.makeSegments(text), ecl);
+  }
+
+  public static MicroQrCode encodeSegments(List<QrSegment> segs, QrCode.Ecc ecl) {
+    return encodeSegments(segs, ecl, MIN_VERSION, MAX_VERSION, -1, true);
+  }
+
+  public static MicroQrCode encodeSegments(List<QrSegment> segs, QrCode.Ecc ecl, int minVersion, int maxVersion,
+                                           int mask, boolean boostEcl) {
+    Objects.requireNonNull(segs);
+    Objects.requireNonNull(ecl);
+    if (!(MIN_VERSION <= minVersion && minVersion <= maxVersion && maxVersion <= MAX_VERSION) || mask < -1 || mask > 3)
+      throw new IllegalArgumentException("Invalid value");
+
+    int version = getSmallestVersion(segs, ecl, minVersion, maxVersion);
+    if (version == -1)
+      throw new DataTooLongException("Segment too long for a Micro QR Code");
+    int dataUsedBits = getTotalBits(segs, version);
+
+    for (QrCode.Ecc newEcl : QrCode.Ecc.values()) {
+      int capacity = getNumDataBits(version, newEcl);
+      if (boostEcl && capacity != -1 && dataUsedBits <= capacity)
+        ecl = newEcl;
+    }
+
+
+    BitBuffer bb = new BitBuffer(DATA_BITS[0][MAX_VERSION]);
+    for (QrSegment seg : segs) {
+      bb.appendBits(seg.mode.ordinal(), version - 1);
+      bb.appendBits(seg.numChars, numCharCountBits(seg.mode, version));
+      bb.appendBits(seg.data, seg.bitLength);
+    }
+    assert bb.bitLength == dataUsedBits;
+
+
+    int dataCapacityBits = getNumDataBits(version, ecl);
+    bb.appendBits(0, Math.min(version * 2 + 1, dataCapacityBits - bb.bitLength));
+    bb.appendBits(0, Math.min((8 - bb.bitLength % 8) % 8, dataCapacityBits - bb.bitLength));
+    for (int padByte = 0xEC; dataCapacityBits - bb.bitLength >= 8; padByte ^= 0xEC ^ 0x11)
+      bb.appendBits(padByte, 8);
+
+    // M1 and M3 end in a 4-bit codeword, left zero and carried in the high nibble of the last byte
+    bb.appendBits(0, dataCapacityBits - bb.bitLength);
+    bb.appendBits(0, (8 - bb.bitLength % 8) % 8);
+    return new MicroQrCode(version, ecl, bb.getBytes(), mask);
+  }
+
+  /**
+   * Returns the smallest version within the range that holds the segments at the given level,
+   * or -1 if none does.
+   */
+  static int getSmallestVersion(List<QrSegment> segs, QrCode.Ecc ecl, int minVersion, int maxVersion) {
+    for (int version = minVersion; version <= maxVersion; version++) {
+      int capacity = getNumDataBits(version, ecl);
+      int used = getTotalBits(segs, version);
+      if (capacity != -1 && used != -1 && used <= capacity)
+        return version;
+    }
+    return -1;
+  }
+
+  static int getTotalBits(List<QrSegment> segs, int version) {
+    Objects.requireNonNull(segs);
+    int result = 0;
+    for (QrSegment seg : segs) {
+      Objects.requireNonNull(seg);
+      int ccbits = numCharCountBits(seg.mode, version);
+      if (ccbits == -1 || seg.numChars >= (1 << ccbits))
+        return -1;
+      result += version - 1 + ccbits + seg.bitLength;
+      if (result > DATA_BITS[0][MAX_VERSION])
+        return -1;
+    }
+    return result;
+  }
+
+  static int getNumDataBits(int ver, QrCode.Ecc ecl) {
+    return DATA_BITS[ecl.ordinal()][ver];
+  }
+
+  static int getCorrectionCapacity(int ver, QrCode.Ecc ecl) {
+    return ver == 1 ? 0 : ECC_CODEWORDS[ecl.ordinal()][ver] / 2;
+  }
+
+  private static int numCharCountBits(QrSegment.Mode mode, int ver) {
+    return switch (mode) {
+      case NUMERIC -> ver + 2;
+      case ALPHANUMERIC -> ver >= 2 ? ver + 1 : -1;
+      case BYTE -> ver >= 3 ? ver + 1 : -1;
+      case KANJI -> ver >= 3 ? ver : -1;
+      case ECI -> -1;
+    };
+  }
+
+  public final int version;
+  public final int size;
+  public final QrCode.Ecc errorCorrectionLevel;
+  public final int mask;
+  private final int rowWords;
+  private final long[] modules;
+
+
+  public MicroQrCode(int ver, QrCode.Ecc ecl, byte[] dataCodewords, int msk) {
+    if (ver < MIN_VERSION || ver > MAX_VERSION)
+      throw new IllegalArgumentException("Version value out of range");
+    if (msk < -1 || msk > 3)
+      throw new IllegalArgumentException("Mask value out of range");
+    if (getNumDataBits(ver, Objects.requireNonNull(ecl)) == -1)
+      throw new IllegalArgumentException("Error correction level not available for this version");
+    version = ver;
+    size = ver * 2 + 9;
+    rowWords = QrTemplate.getRowWords(size);
+    errorCorrectionLevel = ecl;
+    Objects.requireNonNull(dataCodewords);
+    if (dataCodewords.length != (getNumDataBits(ver, ecl) + 7) / 8)
+      throw new IllegalArgumentException();
+
+    MicroQrTemplate tpl = MicroQrTemplate.MEMOIZER.get(ver);
+    modules = tpl.template.clone();
+
+    byte[] ecc = new byte[ECC_CODEWORDS[ecl.ordinal()][ver]];
+    ReedSolomonGenerator.MEMOIZER.get(ecc.length).getRemainder(dataCodewords, 0, dataCodewords.length, ecc);
+    drawCodewords(tpl.placement, dataCodewords, ecc);
+    mask = handleConstructorMasking(tpl, msk);
+    QrMetrics.encoded(version, errorCorrectionLevel, mask);
+  }
+
+
+  @Override
+  public int getVersion() {
+    return version;
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public QrCode.Ecc getErrorCorrectionLevel() {
+    return errorCorrectionLevel;
+  }
+
+  @Override
+  public int getMask() {
+    return mask;
+  }
+
+  @Override
+  public boolean isMicro() {
+    return true;
+  }
+
+  @Override
+  public boolean getModule(int x, int y) {
+    if (0 <= x && x < size && 0 <= y && y < size)
+      return QrCode.getBit(modules[y * rowWords + (x >>> 6)], x) != 0;
+    else
+      return false;
+  }
+
+  @Override
+  public void getRow(int y, long[] words) {
+    Objects.checkIndex(y, size);
+    System.arraycopy(modules, y * rowWords, words, 0, rowWords);
+  }
+
+  private void drawFormatBits(int msk) {
+
+    int data = SYMBOL_NUMBERS[errorCorrectionLevel.ordinal()][version] << 2 | msk;
+    int rem = data;
+    for (int i = 0; i < 10; i++)
+      rem = (rem << 1) ^ ((rem >>> 9) * 0x537);
+    int bits = (data << 10 | rem) ^ 0x4445;
+    assert bits >>> 15 == 0;
+
+
+    for (int i = 0; i < 8; i++)
+      setModule(8, i + 1, QrCode.getBit(bits, i));
+    for (int i = 0; i < 8; i++)
+      setModule(i + 1, 8, QrCode.getBit(bits, 14 - i));
+  }
+
+  private void setModule(int x, int y, int dark) {
+    assert 0 <= x && x < size;
+    assert 0 <= y && y < size;
+    assert dark == 0 || dark == 1;
+    int i = y * rowWords + (x >>> 6);
+    modules[i] &= ~(1L << x);
+    modules[i] |= (long) dark << x;
+  }
+
+  private void drawCodewords(CodewordPlacement placement, byte[] data, byte[] ecc) {
+    int dataBits = getNumDataBits(version, errorCorrectionLevel);
+    if (dataBits + ecc.length * 8 != placement.bitCount)
+      throw new IllegalArgumentException();
+    BitBuffer bb = new BitBuffer(placement.bitCount);
+    for (int i = 0; i < dataBits; i += 8) {
+      int len = Math.min(8, dataBits - i);
+      bb.appendBits((data[i >>> 3] & 0xFF) >>> (8 - len), len);
+    }
+    for (byte b : ecc)
+      bb.appendBits(b & 0xFF, 8);
+    placement.draw(bb.data, modules);
+  }
+
+  private int handleConstructorMasking(MicroQrTemplate tpl, int msk) {
+    if (msk == -1) {
+      int maxScore = Integer.MIN_VALUE;
+      for (int i = 0; i < 4; i++) {
+        tpl.applyMask(i, modules);
+        drawFormatBits(i);
+        int score = getEdgeScore();
+        QrMetrics.maskPenalty(i, score);
+        if (score > maxScore) {
+          msk = i;
+          maxScore = score;
+        }
+        tpl.applyMask(i, modules);
+      }
+    }
+    assert 0 <= msk && msk <= 3;
+    tpl.applyMask(msk, modules);
+    drawFormatBits(msk);
+    return msk;
+  }
+
+  /**
+   * Micro QR masks are ranked by dark modules along the right and bottom edges, higher is better.
+   */
+  private int getEdgeScore() {
+    int right = 0, bottom = 0;
+    for (int i = 1; i < size; i++) {
+      right += QrCode.getBit(modules[i * rowWords + ((size - 1) >>> 6)], size - 1);
+      bottom += QrCode.getBit(modules[(size - 1) * rowWords + (i >>> 6)], i);
+    }
+    return right <= bottom ? right * 16 + bottom : bottom * 16 + right;
+  }
+
+  public static final int MIN_VERSION = 1;
+
+  public static final int MAX_VERSION = 4;
+
+
+  private static final short[][] DATA_BITS = {
+    {-1, 20, 40, 84, 128},
+    {-1, -1, 32, 68, 112},
+    {-1, -1, -1, -1, 80},
+    {-1, -1, -1, -1, -1},
+  };
+
+  private static final byte[][] ECC_CODEWORDS = {
+    {-1, 2, 5, 6, 8},
+    {-1, -1, 6, 8, 10},
+    {-1, -1, -1, -1, 14},
+    {-1, -1, -1, -1, -1},
+  };
+
+  private static final byte[][] SYMBOL_NUMBERS = {
+    {-1, 0, 1, 3, 5},
+    {-1, -1, 2, 4, 6},
+    {-1, -1, -1, -1, 7},
+    {-1, -1, -1, -1, -1},
+  };
+
+}
@@ -0,0 +1,91 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+final class MicroQrTemplate {
+
+  public static final Memoizer<Integer, MicroQrTemplate> MEMOIZER
+    = new Memoizer<>("MicroQrTemplate", MicroQrTemplate::new);
+
+  private static final int[] QR_MASKS = {1, 4, 6, 7};
+
+  private final int size;
+  private final int rowWords;
+  final long[] template;
+  final long[] dataModules;
+  final CodewordPlacement placement;
+
+  private long[] isFunction;
+
+  private MicroQrTemplate(int ver) {
+    if (ver < MicroQrCode.MIN_VERSION || ver > MicroQrCode.MAX_VERSION)
+      throw new IllegalArgumentException("Version out of range");
+    size = ver * 2 + 9;
+    rowWords = QrTemplate.getRowWords(size);
+    template = new long[size * rowWords];
+    isFunction = new long[template.length];
+
+    drawFunctionPatterns();
+    dataModules = QrTemplate.getDataModules(isFunction, size);
+    int numDataModules = 0;
+    for (long word : dataModules)
+      numDataModules += Long.bitCount(word);
+    placement = new CodewordPlacement(size, isFunction, -1, numDataModules);
+    isFunction = null;
+  }
+
+  private void drawFunctionPatterns() {
+
+    for (int i = 0; i < size; i++) {
+      darkenFunctionModule(i, 0, ~i & 1);
+      darkenFunctionModule(0, i, ~i & 1);
+    }
+
+    for (int dy = -4; dy <= 4; dy++) {
+      for (int dx = -4; dx <= 4; dx++) {
+        int dist = Math.max(Math.abs(dx), Math.abs(dy));
+        int x = 3 + dx, y = 3 + dy;
+        if (0 <= x && x < size && 0 <= y && y < size)
+          darkenFunctionModule(x, y, (dist != 2 && dist != 4) ? 1 : 0);
+      }
+    }
+
+    for (int i = 1; i <= 8; i++) {
+      darkenFunctionModule(8, i, 0);
+      darkenFunctionModule(i, 8, 0);
+    }
+  }
+
+  /**
+   * The four Micro QR masks are QR masks 1, 4, 6 and 7.
+   */
+  void applyMask(int mask, long[] modules) {
+    QrTemplate.applyMask(QrTemplate.MASK_ROWS[QR_MASKS[mask]], dataModules, rowWords, modules);
+  }
+
+  private int getModule(long[] grid, int x, int y) {
+    assert 0 <= x && x < size;
+    assert 0 <= y && y < size;
+    return QrCode.getBit(grid[y * rowWords + (x >>> 6)], x);
+  }
+
+  private void darkenFunctionModule(int x, int y, int enable) {
+    assert 0 <= x && x < size;
+    assert 0 <= y && y < size;
+    assert enable == 0 || enable == 1;
+    int i = y * rowWords + (x >>> 6);
+    template[i] |= (long) enable << x;
+    isFunction[i] |= 1L << x;
+  }
+
+}
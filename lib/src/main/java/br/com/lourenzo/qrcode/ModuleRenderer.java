@@ -0,0 +1,84 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+/**
+ * Shape of the dark data modules of a {@link SvgQrCode}. A renderer is asked once per configuration for the
+ * markup of one module with coordinate placeholders; the constant text around them is then pre-encoded and
+ * reused for every module, so the per-module cost does not depend on the shape.
+ */
+@FunctionalInterface
+public interface ModuleRenderer {
+
+  /**
+   * Left edge of the module, in user units.
+   */
+  String X = "{x}";
+
+  /**
+   * Top edge of the module, in user units.
+   */
+  String Y = "{y}";
+
+  /**
+   * Horizontal center of the module, in user units.
+   */
+  String CENTER_X = "{cx}";
+
+  /**
+   * Vertical center of the module, in user units.
+   */
+  String CENTER_Y = "{cy}";
+
+  /**
+   * Returns the markup of one module of {@code unit} user units per side, containing one of {@link #X} or
+   * {@link #CENTER_X} followed by one of {@link #Y} or {@link #CENTER_Y}. {@code fill} is null in
+   * {@code compact} output, where modules inherit the color of their group.
+   */
+  String markup(int unit, String fill);
+
+  static ModuleRenderer circle() {
+    return new SvgShapes.Circle();
+  }
+
+  static ModuleRenderer dot() {
+    return new SvgShapes.Dot();
+  }
+
+  static ModuleRenderer square() {
+    return new SvgShapes.Square(0);
+  }
+
+  /**
+   * Squares with corners rounded by {@code radius} module units, up to 0.5.
+   */
+  static ModuleRenderer rounded(double radius) {
+    if (!(radius >= 0 && radius <= 0.5))
+      throw new IllegalArgumentException("Radius out of range");
+    return new SvgShapes.Square(radius);
+  }
+
+  static ModuleRenderer diamond() {
+    return new SvgShapes.Diamond();
+  }
+
+  /**
+   * Draws {@code pathData}, in module units relative to the module's top-left corner, at every module.
+   */
+  static ModuleRenderer path(String pathData) {
+    if (pathData.isEmpty() || pathData.indexOf('"') >= 0 || pathData.indexOf('<') >= 0)
+      throw new IllegalArgumentException("Invalid path data");
+    return new SvgShapes.CustomPath(pathData);
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a 1-bit grayscale PNG, one scanline per pixel row, without holding the image in memory.
+ */
+public final class PngSink implements RenderSink {
+
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+  private static final int CHUNK_BYTES = 32 * 1024;
+
+  private final OutputStream out;
+  private final int scale;
+  private final int border;
+
+  private int size;
+  private DeflaterOutputStream pixels;
+  private byte[] scanline;
+  private byte[] blankScanline;
+
+  public PngSink(OutputStream out, int scale, int border) {
+    if (scale < 1 || border < 0)
+      throw new IllegalArgumentException("Invalid scale or border");
+    this.out = Objects.requireNonNull(out);
+    this.scale = scale;
+    this.border = border;
+  }
+
+  @Override
+  public void begin(QrSymbol symbol) throws IOException {
+    size = symbol.getSize();
+    long width = (long) (size + 2 * border) * scale;
+    if (width > Integer.MAX_VALUE / 8)
+      throw new IllegalArgumentException("Image too large");
+
+    out.write(SIGNATURE);
+    byte[] header = new byte[13];
+    writeInt(header, 0, (int) width);
+    writeInt(header, 4, (int) width);
+    header[8] = 1;
+    writeChunk(out, "IHDR", header, header.length);
+
+    scanline = new byte[1 + (int) ((width + 7) / 8)];
+    blankScanline = new byte[scanline.length];
+    Arrays.fill(blankScanline, 1, blankScanline.length, (byte) 0xFF);
+    pixels = new DeflaterOutputStream(new IdatOutputStream(out));
+    for (int i = 0; i < border * scale; i++)
+      pixels.write(blankScanline);
+  }
+
+  @Override
+  public void row(int y, long[] modules) throws IOException {
+    System.arraycopy(blankScanline, 0, scanline, 0, scanline.length);
+    for (int x = 0; x < size; x++) {
+      if (QrCode.getBit(modules[x >>> 6], x) == 0)
+        continue;
+      for (int px = (x + border) * scale, end = px + scale; px < end; px++)
+        scanline[1 + (px >>> 3)] &= (byte) ~(0x80 >>> (px & 7));
+    }
+    for (int i = 0; i < scale; i++)
+      pixels.write(scanline);
+  }
+
+  @Override
+  public void end() throws IOException {
+    for (int i = 0; i < border * scale; i++)
+      pixels.write(blankScanline);
+    pixels.close();
+    writeChunk(out, "IEND", new byte[0], 0);
+    out.flush();
+    pixels = null;
+  }
+
+  private static void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+
+    DataOutputStream chunk = new DataOutputStream(out);
+    chunk.writeInt(length);
+    chunk.write(typeBytes);
+    chunk.write(data, 0, length);
+    chunk.writeInt((int) crc.getValue());
+  }
+
+  private static void writeInt(byte[] b, int off, int value) {
+    b[off] = (byte) (value >>> 24);
+    b[off + 1] = (byte) (value >>> 16);
+    b[off + 2] = (byte) (value >>> 8);
+    b[off + 3] = (byte) value;
+  }
+
+  /**
+   * Cuts the compressed stream into IDAT chunks. Closing it emits the last chunk but leaves the
+   * underlying stream open.
+   */
+  private static final class IdatOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[CHUNK_BYTES];
+    private int count;
+
+    IdatOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length)
+        flushChunk();
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (count == buffer.length)
+          flushChunk();
+        int n = Math.min(len, buffer.length - count);
+        System.arraycopy(b, off, buffer, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      flushChunk();
+    }
+
+    private void flushChunk() throws IOException {
+      if (count > 0)
+        writeChunk(out, "IDAT", buffer, count);
+      count = 0;
+    }
+
+  }
+
+}
@@ -12,17 +12,50 @@
 
 package br.com.lourenzo.qrcode;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
-public final class QrCode {
+public final class QrCode implements QrSymbol {
 
   public static QrCode encodeText(String text, Ecc ecl) {
+    return encodeText((CharSequence) text, ecl);
+  }
+
+  public static QrCode encodeText(CharSequence text, Ecc ecl) {
     Objects.requireNonNull(text);
     Objects.requireNonNull(ecl);
+    EncodeEvent event = EncodeEvent.started();
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
     List<QrSegment> segs = QrSegment.makeSegments(text);
-    return encodeSegments(segs, ecl);
+    event.segmentationNanos = QrMetrics.stage(QrMetrics.Stage.SEGMENTATION, start, timed);
+    return encodeSegments(segs, ecl, MIN_VERSION, MAX_VERSION, -1, true, event);
+  }
+
+  public static QrCode encodeBinary(byte[] data, int offset, int length, Ecc ecl) {
+    Objects.requireNonNull(data);
+    Objects.requireNonNull(ecl);
+    return encodeSegments(List.of(QrSegment.makeBytes(data, offset, length)), ecl);
+  }
+
+  public static QrCode encodeBinary(ByteBuffer data, Ecc ecl) {
+    Objects.requireNonNull(data);
+    Objects.requireNonNull(ecl);
+    return encodeSegments(List.of(QrSegment.makeBytes(data)), ecl);
+  }
+
+  public static CompletableFuture<QrCode> encodeTextAsync(String text, Ecc ecl, Executor executor) {
+    return encodeTextAsync((CharSequence) text, ecl, executor);
+  }
+
+  public static CompletableFuture<QrCode> encodeTextAsync(CharSequence text, Ecc ecl, Executor executor) {
+    Objects.requireNonNull(text);
+    Objects.requireNonNull(ecl);
+    return CompletableFuture.supplyAsync(() -> encodeText(text, ecl), executor);
   }
 
   public static QrCode encodeSegments(List<QrSegment> segs, Ecc ecl) {
@@ -30,12 +63,19 @@ public final class QrCode {
   }
 
   public static QrCode encodeSegments(List<QrSegment> segs, Ecc ecl, int minVersion, int maxVersion, int mask, boolean boostEcl) {
+    return encodeSegments(segs, ecl, minVersion, maxVersion, mask, boostEcl, EncodeEvent.started());
+  }
+
+  private static QrCode encodeSegments(List<QrSegment> segs, Ecc ecl, int minVersion, int maxVersion, int mask,
+                                       boolean boostEcl, EncodeEvent event) {
     Objects.requireNonNull(segs);
     Objects.requireNonNull(ecl);
     if (!(MIN_VERSION <= minVersion && minVersion <= maxVersion && maxVersion <= MAX_VERSION) || mask < -1 || mask > 7)
       throw new IllegalArgumentException("Invalid value");
 
 
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
     int version, dataUsedBits;
     for (version = minVersion; ; version++) {
       int dataCapacityBits = getNumDataCodewords(version, ecl) * 8;
@@ -55,6 +95,11 @@ public final class QrCode {
       if (boostEcl && dataUsedBits <= getNumDataCodewords(version, newEcl) * 8)
         ecl = newEcl;
     }
+    event.versionSelectionNanos = QrMetrics.stage(QrMetrics.Stage.VERSION_SELECTION, start, timed);
+    if (event.isEnabled()) {
+      for (QrSegment seg : segs)
+        event.payloadLength += seg.numChars;
+    }
 
 
     BitBuffer bb = new BitBuffer();
@@ -77,17 +122,22 @@ public final class QrCode {
       bb.appendBits(padByte, 8);
 
 
-    return new QrCode(version, ecl, bb.getBytes(), mask);
+    return new QrCode(version, ecl, bb.getBytes(), mask, null, event);
   }
 
   public final int version;
   public final int size;
   public final Ecc errorCorrectionLevel;
   public final int mask;
-  private final int[] modules;
+  private final int rowWords;
+  private final long[] modules;
 
 
   public QrCode(int ver, Ecc ecl, byte[] dataCodewords, int msk) {
+    this(ver, ecl, dataCodewords, msk, null, EncodeEvent.started());
+  }
+
+  QrCode(int ver, Ecc ecl, byte[] dataCodewords, int msk, BlockEccSource eccSource, EncodeEvent event) {
 
     if (ver < MIN_VERSION || ver > MAX_VERSION)
       throw new IllegalArgumentException("Version value out of range");
@@ -95,6 +145,7 @@ public final class QrCode {
       throw new IllegalArgumentException("Mask value out of range");
     version = ver;
     size = ver * 4 + 17;
+    rowWords = QrTemplate.getRowWords(size);
     errorCorrectionLevel = Objects.requireNonNull(ecl);
     Objects.requireNonNull(dataCodewords);
 
@@ -102,20 +153,69 @@ public final class QrCode {
     modules = tpl.template.clone();
 
 
-    byte[] allCodewords = addEccAndInterleave(dataCodewords);
-    drawCodewords(tpl.dataOutputBitIndexes, allCodewords);
-    mask = handleConstructorMasking(tpl.masks, msk);
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
+    byte[] allCodewords = addEccAndInterleave(dataCodewords, eccSource);
+    event.eccNanos = QrMetrics.stage(QrMetrics.Stage.ECC_AND_INTERLEAVE, start, timed);
+
+    start = QrMetrics.now(timed);
+    tpl.placement.draw(allCodewords, modules);
+    event.drawCodewordsNanos = QrMetrics.stage(QrMetrics.Stage.DRAW_CODEWORDS, start, timed);
+
+    start = QrMetrics.now(timed);
+    mask = handleConstructorMasking(tpl, msk);
+    event.maskSearchNanos = QrMetrics.stage(QrMetrics.Stage.MASK_SEARCH, start, timed);
+    QrMetrics.encoded(version, errorCorrectionLevel, mask);
+
+    if (event.shouldCommit()) {
+      event.version = version;
+      event.errorCorrectionLevel = errorCorrectionLevel.name();
+      event.mask = mask;
+      event.size = size;
+      event.commit();
+    }
+  }
+
+
+  @Override
+  public int getVersion() {
+    return version;
   }
 
+  @Override
+  public int getSize() {
+    return size;
+  }
 
+  @Override
+  public Ecc getErrorCorrectionLevel() {
+    return errorCorrectionLevel;
+  }
+
+  @Override
+  public int getMask() {
+    return mask;
+  }
+
+  @Override
+  public boolean isMicro() {
+    return false;
+  }
+
+  @Override
   public boolean getModule(int x, int y) {
-    if (0 <= x && x < size && 0 <= y && y < size) {
-      int i = y * size + x;
-      return getBit(modules[i >>> 5], i) != 0;
-    } else
+    if (0 <= x && x < size && 0 <= y && y < size)
+      return getBit(modules[y * rowWords + (x >>> 6)], x) != 0;
+    else
       return false;
   }
 
+  @Override
+  public void getRow(int y, long[] words) {
+    Objects.checkIndex(y, size);
+    System.arraycopy(modules, y * rowWords, words, 0, rowWords);
+  }
+
   private void drawFormatBits(int msk) {
 
     int data = errorCorrectionLevel.formatBits << 3 | msk;
@@ -146,12 +246,12 @@ public final class QrCode {
     assert 0 <= x && x < size;
     assert 0 <= y && y < size;
     assert dark == 0 || dark == 1;
-    int i = y * size + x;
-    modules[i >>> 5] &= ~(1 << i);
-    modules[i >>> 5] |= dark << i;
+    int i = y * rowWords + (x >>> 6);
+    modules[i] &= ~(1L << x);
+    modules[i] |= (long) dark << x;
   }
 
-  private byte[] addEccAndInterleave(byte[] data) {
+  private byte[] addEccAndInterleave(byte[] data, BlockEccSource eccSource) {
     Objects.requireNonNull(data);
     if (data.length != getNumDataCodewords(version, errorCorrectionLevel))
       throw new IllegalArgumentException();
@@ -164,11 +264,14 @@ public final class QrCode {
     int shortBlockDataLen = rawCodewords / numBlocks - blockEccLen;
 
     byte[] result = new byte[rawCodewords];
-    ReedSolomonGenerator rs = ReedSolomonGenerator.MEMOIZER.get(blockEccLen);
+    if (eccSource == null) {
+      ReedSolomonGenerator rs = ReedSolomonGenerator.MEMOIZER.get(blockEccLen);
+      eccSource = (block, dataOff, dataLen, ecc) -> rs.getRemainder(data, dataOff, dataLen, ecc);
+    }
     byte[] ecc = new byte[blockEccLen];
     for (int i = 0, k = 0; i < numBlocks; i++) {
       int datLen = shortBlockDataLen + (i < numShortBlocks ? 0 : 1);
-      rs.getRemainder(data, k, datLen, ecc);
+      eccSource.getRemainder(i, k, datLen, ecc);
       for (int j = 0, l = i; j < datLen; j++, k++, l += numBlocks) {
         if (j == shortBlockDataLen)
           l -= numShortBlocks;
@@ -180,109 +283,134 @@ public final class QrCode {
     return result;
   }
 
-  private void drawCodewords(int[] dataOutputBitIndexes, byte[] allCodewords) {
-    Objects.requireNonNull(dataOutputBitIndexes);
-    Objects.requireNonNull(allCodewords);
-    if (allCodewords.length * 8 != dataOutputBitIndexes.length)
-      throw new IllegalArgumentException();
-    for (int i = 0; i < dataOutputBitIndexes.length; i++) {
-      int j = dataOutputBitIndexes[i];
-      int bit = getBit(allCodewords[i >>> 3], ~i & 7);
-      modules[j >>> 5] |= bit << j;
-    }
-  }
-
-  private void applyMask(int[] msk) {
-    if (msk.length != modules.length)
-      throw new IllegalArgumentException();
-    for (int i = 0; i < msk.length; i++)
-      modules[i] ^= msk[i];
-  }
-
-  private int handleConstructorMasking(int[][] masks, int msk) {
+  private int handleConstructorMasking(QrTemplate tpl, int msk) {
     if (msk == -1) {
       int minPenalty = Integer.MAX_VALUE;
       for (int i = 0; i < 8; i++) {
-        applyMask(masks[i]);
+        tpl.applyMask(i, modules);
         drawFormatBits(i);
-        int penalty = getPenaltyScore();
+        int penalty = getPenaltyScore(tpl);
+        QrMetrics.maskPenalty(i, penalty);
         if (penalty < minPenalty) {
           msk = i;
           minPenalty = penalty;
         }
-        applyMask(masks[i]);
+        tpl.applyMask(i, modules);
       }
     }
     assert 0 <= msk && msk <= 7;
-    applyMask(masks[msk]);
+    tpl.applyMask(msk, modules);
     drawFormatBits(msk);
     return msk;
   }
 
-  private int getPenaltyScore() {
+  private int getPenaltyScore(QrTemplate tpl) {
     int result = 0;
-    int dark = 0;
     int[] runHistory = new int[7];
-
-
-    for (int index = 0, downIndex = size, end = size * size; index < end; ) {
-      int runColor = 0;
-      int runX = 0;
-      Arrays.fill(runHistory, 0);
-      int curRow = 0;
-      int nextRow = 0;
-      for (int x = 0; x < size; x++, index++, downIndex++) {
-        int c = getBit(modules[index >>> 5], index);
-        if (c == runColor) {
-          runX++;
-          if (runX == 5)
-            result += PENALTY_N1;
-          else if (runX > 5)
-            result++;
-        } else {
-          finderPenaltyAddHistory(runX, runHistory);
-          if (runColor == 0)
-            result += finderPenaltyCountPatterns(runHistory) * PENALTY_N3;
-          runColor = c;
-          runX = 1;
+    int[] run = new int[2];
+
+
+    for (int y = 0, row = 0; y < size; y++, row += rowWords) {
+      QrTemplate.RunPrefix prefix = tpl.rowPrefixes[y];
+      result += prefix.score();
+      if (prefix.length() == size)
+        continue;
+      int runColor = prefix.runColor();
+      int runX = prefix.runLength();
+      System.arraycopy(prefix.runHistory(), 0, runHistory, 0, runHistory.length);
+      QrTemplate.FixedSpan[] spans = tpl.rowSpans[y];
+      for (int x = prefix.length(), s = 0; ; s++) {
+        for (int end = s < spans.length ? spans[s].start() : size; x < end; x++) {
+          int c = getBit(modules[row + (x >>> 6)], x);
+          if (c == runColor) {
+            runX++;
+            if (runX == 5)
+              result += PENALTY_N1;
+            else if (runX > 5)
+              result++;
+          } else {
+            finderPenaltyAddHistory(runX, runHistory, size);
+            if (runColor == 0)
+              result += finderPenaltyCountPatterns(runHistory, size) * PENALTY_N3;
+            runColor = c;
+            runX = 1;
+          }
         }
-        dark += c;
-        if (downIndex < end) {
-          curRow = ((curRow << 1) | c) & 3;
-          nextRow = ((nextRow << 1) | getBit(modules[downIndex >>> 5], downIndex)) & 3;
+        if (s == spans.length)
+          break;
+        run[0] = runColor;
+        run[1] = runX;
+        result += spans[s].scan(run, runHistory, size);
+        runColor = run[0];
+        runX = run[1];
+        x = spans[s].end();
+      }
+      result += finderPenaltyTerminateAndCount(runColor, runX, runHistory, size) * PENALTY_N3;
+    }
 
-          if (x >= 1 && (curRow == 0 || curRow == 3) && curRow == nextRow)
-            result += PENALTY_N2;
+
+    for (int x = 0; x < size; x++) {
+      QrTemplate.RunPrefix prefix = tpl.columnPrefixes[x];
+      result += prefix.score();
+      if (prefix.length() == size)
+        continue;
+      int runColor = prefix.runColor();
+      int runY = prefix.runLength();
+      System.arraycopy(prefix.runHistory(), 0, runHistory, 0, runHistory.length);
+      QrTemplate.FixedSpan[] spans = tpl.columnSpans[x];
+      for (int y = prefix.length(), s = 0; ; s++) {
+        for (int end = s < spans.length ? spans[s].start() : size, index = y * rowWords + (x >>> 6); y < end;
+             y++, index += rowWords) {
+          int c = getBit(modules[index], x);
+          if (c == runColor) {
+            runY++;
+            if (runY == 5)
+              result += PENALTY_N1;
+            else if (runY > 5)
+              result++;
+          } else {
+            finderPenaltyAddHistory(runY, runHistory, size);
+            if (runColor == 0)
+              result += finderPenaltyCountPatterns(runHistory, size) * PENALTY_N3;
+            runColor = c;
+            runY = 1;
+          }
         }
+        if (s == spans.length)
+          break;
+        run[0] = runColor;
+        run[1] = runY;
+        result += spans[s].scan(run, runHistory, size);
+        runColor = run[0];
+        runY = run[1];
+        y = spans[s].end();
       }
-      result += finderPenaltyTerminateAndCount(runColor, runX, runHistory) * PENALTY_N3;
+      result += finderPenaltyTerminateAndCount(runColor, runY, runHistory, size) * PENALTY_N3;
     }
 
 
-    for (int x = 0; x < size; x++) {
-      int runColor = 0;
-      int runY = 0;
-      Arrays.fill(runHistory, 0);
-      for (int y = 0, index = x; y < size; y++, index += size) {
-        int c = getBit(modules[index >>> 5], index);
-        if (c == runColor) {
-          runY++;
-          if (runY == 5)
-            result += PENALTY_N1;
-          else if (runY > 5)
-            result++;
-        } else {
-          finderPenaltyAddHistory(runY, runHistory);
-          if (runColor == 0)
-            result += finderPenaltyCountPatterns(runHistory) * PENALTY_N3;
-          runColor = c;
-          runY = 1;
+    for (int row = 0, end = (size - 1) * rowWords; row < end; row += rowWords) {
+      for (int w = 0; w < rowWords; w++) {
+        long cur = modules[row + w];
+        long next = modules[row + rowWords + w];
+        long curRight = cur >>> 1;
+        long nextRight = next >>> 1;
+        if (w + 1 < rowWords) {
+          curRight |= modules[row + w + 1] << 63;
+          nextRight |= modules[row + rowWords + w + 1] << 63;
         }
+        long uniform = ~(cur ^ next) & ~(cur ^ curRight) & ~(next ^ nextRight);
+        int valid = size - 1 - (w << 6);
+        if (valid < 64)
+          uniform &= (1L << valid) - 1;
+        result += Long.bitCount(uniform) * PENALTY_N2;
       }
-      result += finderPenaltyTerminateAndCount(runColor, runY, runHistory) * PENALTY_N3;
     }
 
 
+    int dark = 0;
+    for (long word : modules)
+      dark += Long.bitCount(word);
     int total = size * size;
 
     int k = (Math.abs(dark * 20 - total * 10) + total - 1) / total - 1;
@@ -296,7 +424,41 @@ public final class QrCode {
       * NUM_ERROR_CORRECTION_BLOCKS[ecl.ordinal()][ver];
   }
 
-  private int finderPenaltyCountPatterns(int[] runHistory) {
+  static int getNumBlocks(int ver, Ecc ecl) {
+    return NUM_ERROR_CORRECTION_BLOCKS[ecl.ordinal()][ver];
+  }
+
+  static int getBlockEccLength(int ver, Ecc ecl) {
+    return ECC_CODEWORDS_PER_BLOCK[ecl.ordinal()][ver];
+  }
+
+  static int getBlockCorrectionCapacity(int ver, Ecc ecl) {
+    return ECC_CODEWORDS_PER_BLOCK[ecl.ordinal()][ver] / 2;
+  }
+
+  static int getMaxBlockDamage(int ver, Ecc ecl, BitSet damagedCodewords) {
+    int numBlocks = NUM_ERROR_CORRECTION_BLOCKS[ecl.ordinal()][ver];
+    int rawCodewords = QrTemplate.getNumRawDataModules(ver) / 8;
+    int numShortBlocks = numBlocks - rawCodewords % numBlocks;
+    int shortBlockDataLen = rawCodewords / numBlocks - ECC_CODEWORDS_PER_BLOCK[ecl.ordinal()][ver];
+    int numDataCodewords = getNumDataCodewords(ver, ecl);
+
+    int[] damage = new int[numBlocks];
+    int result = 0;
+    for (int i = damagedCodewords.nextSetBit(0); i >= 0; i = damagedCodewords.nextSetBit(i + 1)) {
+      int block;
+      if (i >= numDataCodewords)
+        block = (i - numDataCodewords) % numBlocks;
+      else if (i < shortBlockDataLen * numBlocks)
+        block = i % numBlocks;
+      else
+        block = numShortBlocks + i - shortBlockDataLen * numBlocks;
+      result = Math.max(++damage[block], result);
+    }
+    return result;
+  }
+
+  static int finderPenaltyCountPatterns(int[] runHistory, int size) {
     int n = runHistory[1];
     assert n <= size * 3;
     boolean core = n > 0 && runHistory[2] == n && runHistory[3] == n * 3 && runHistory[4] == n && runHistory[5] == n;
@@ -304,17 +466,17 @@ public final class QrCode {
       + (core && runHistory[6] >= n * 4 && runHistory[0] >= n ? 1 : 0);
   }
 
-  private int finderPenaltyTerminateAndCount(int currentRunColor, int currentRunLength, int[] runHistory) {
+  static int finderPenaltyTerminateAndCount(int currentRunColor, int currentRunLength, int[] runHistory, int size) {
     if (currentRunColor == 1) {
-      finderPenaltyAddHistory(currentRunLength, runHistory);
+      finderPenaltyAddHistory(currentRunLength, runHistory, size);
       currentRunLength = 0;
     }
     currentRunLength += size;
-    finderPenaltyAddHistory(currentRunLength, runHistory);
-    return finderPenaltyCountPatterns(runHistory);
+    finderPenaltyAddHistory(currentRunLength, runHistory, size);
+    return finderPenaltyCountPatterns(runHistory, size);
   }
 
-  private void finderPenaltyAddHistory(int currentRunLength, int[] runHistory) {
+  static void finderPenaltyAddHistory(int currentRunLength, int[] runHistory, int size) {
     if (runHistory[0] == 0)
       currentRunLength += size;
     System.arraycopy(runHistory, 0, runHistory, 1, runHistory.length - 1);
@@ -325,13 +487,17 @@ public final class QrCode {
     return (x >>> i) & 1;
   }
 
+  static int getBit(long x, int i) {
+    return (int) (x >>> i) & 1;
+  }
+
   public static final int MIN_VERSION = 1;
 
   public static final int MAX_VERSION = 40;
 
-  private static final int PENALTY_N1 = 3;
+  static final int PENALTY_N1 = 3;
   private static final int PENALTY_N2 = 3;
-  private static final int PENALTY_N3 = 40;
+  static final int PENALTY_N3 = 40;
   private static final int PENALTY_N4 = 10;
 
 
@@ -351,6 +517,15 @@ public final class QrCode {
     {-1, 1, 1, 2, 4, 4, 4, 5, 6, 8, 8, 11, 11, 16, 16, 18, 16, 19, 21, 25, 25, 25, 34, 30, 32, 35, 37, 40, 42, 45, 48, 51, 54, 57, 60, 63, 66, 70, 74, 77, 81},
   };
 
+  /**
+   * Computes the error correction codewords of one block of data codewords. The default source runs the
+   * Reed-Solomon division; {@link SerialEncoder} combines precomputed contributions instead.
+   */
+  @FunctionalInterface
+  interface BlockEccSource {
+    void getRemainder(int block, int dataOff, int dataLen, byte[] result);
+  }
+
   public enum Ecc {
     LOW(1),
     MEDIUM(0),
@@ -0,0 +1,121 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.util.Objects;
+
+/**
+ * Process-wide instrumentation hook. Until a listener is installed, or a JFR recording enables
+ * the matching event, every probe is a single field read and no clock is sampled.
+ */
+public final class QrMetrics {
+
+  private static final Listener NOOP = new Listener() {
+  };
+
+  private static volatile Listener listener = NOOP;
+
+  private static volatile boolean enabled = false;
+
+  private QrMetrics() {
+  }
+
+  public static void setListener(Listener newListener) {
+    Objects.requireNonNull(newListener);
+    listener = newListener;
+    enabled = newListener != NOOP;
+  }
+
+  public static void clearListener() {
+    setListener(NOOP);
+  }
+
+  public static Listener getListener() {
+    return listener;
+  }
+
+  static boolean enabled() {
+    return enabled;
+  }
+
+  static boolean timed(jdk.jfr.Event event) {
+    return enabled || event.isEnabled();
+  }
+
+  static long now(boolean timed) {
+    return timed ? System.nanoTime() : 0;
+  }
+
+  static long elapsed(long start, boolean timed) {
+    return timed ? System.nanoTime() - start : 0;
+  }
+
+  static long stage(Stage stage, long start, boolean timed) {
+    long nanos = elapsed(start, timed);
+    if (enabled)
+      listener.stageCompleted(stage, nanos);
+    return nanos;
+  }
+
+  static void maskPenalty(int mask, int penalty) {
+    if (enabled)
+      listener.maskPenalty(mask, penalty);
+  }
+
+  static void cacheAccess(String cache, boolean hit) {
+    if (enabled)
+      listener.cacheAccess(cache, hit);
+  }
+
+  static void encoded(int version, QrCode.Ecc ecc, int mask) {
+    if (enabled)
+      listener.encoded(version, ecc, mask);
+  }
+
+  static void rendered(long bytes) {
+    if (enabled)
+      listener.rendered(bytes);
+  }
+
+  public enum Stage {
+    SEGMENTATION,
+    VERSION_SELECTION,
+    ECC_AND_INTERLEAVE,
+    DRAW_CODEWORDS,
+    MASK_SEARCH,
+    SVG_RENDER
+  }
+
+  /**
+   * Callbacks are invoked synchronously on the encoding thread and must be thread-safe.
+   */
+  public interface Listener {
+
+    default void stageCompleted(Stage stage, long nanos) {
+    }
+
+    default void maskPenalty(int mask, int penalty) {
+    }
+
+    default void cacheAccess(String cache, boolean hit) {
+    }
+
+    default void encoded(int version, QrCode.Ecc ecc, int mask) {
+    }
+
+    default void rendered(long bytes) {
+    }
+
+  }
+
+}
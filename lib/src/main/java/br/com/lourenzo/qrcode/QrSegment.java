@@ -12,7 +12,8 @@
 
 package br.com.lourenzo.qrcode;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -23,23 +24,116 @@ public final class QrSegment {
 
   public static QrSegment makeBytes(byte[] data) {
     Objects.requireNonNull(data);
-    if (data.length * 8L > Integer.MAX_VALUE)
+    return makeBytes(data, 0, data.length);
+  }
+
+  public static QrSegment makeBytes(byte[] data, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, data.length);
+    return makeBytes(ByteBuffer.wrap(data, offset, length));
+  }
+
+  public static QrSegment makeBytes(ByteBuffer data) {
+    Objects.requireNonNull(data);
+    int length = data.remaining();
+    if (length * 8L > Integer.MAX_VALUE)
       throw new IllegalArgumentException("Data too long");
-    int[] bits = new int[(data.length + 3) / 4];
-    for (int i = 0; i < data.length; i++)
-      bits[i >>> 2] |= (data[i] & 0xFF) << (~i << 3);
-    return new QrSegment(Mode.BYTE, data.length, bits, data.length * 8);
+    ByteBuffer src = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+    int base = src.position();
+    long[] bits = new long[(length + 7) / 8];
+    int wholeWords = length / 8;
+    for (int i = 0; i < wholeWords; i++)
+      bits[i] = src.getLong(base + i * 8);
+    for (int i = wholeWords * 8; i < length; i++)
+      bits[i >>> 3] |= (src.get(base + i) & 0xFFL) << (~i << 3);
+    return new QrSegment(Mode.BYTE, length, bits, length * 8);
   }
 
   public static QrSegment makeNumeric(String digits) {
+    return makeNumeric((CharSequence) digits);
+  }
+
+  public static QrSegment makeNumeric(CharSequence digits) {
     Objects.requireNonNull(digits);
-    BitBuffer bb = new BitBuffer();
+    BitBuffer bb = new BitBuffer(capacityBits(Mode.NUMERIC, digits.length()));
+    if (packNumeric(digits, bb) != digits.length())
+      throw new IllegalArgumentException("String contains non-numeric characters");
+    return new QrSegment(Mode.NUMERIC, digits.length(), bb.data, bb.bitLength);
+  }
+
+  public static QrSegment makeAlphanumeric(String text) {
+    return makeAlphanumeric((CharSequence) text);
+  }
+
+  public static QrSegment makeAlphanumeric(CharSequence text) {
+    Objects.requireNonNull(text);
+    BitBuffer bb = new BitBuffer(capacityBits(Mode.ALPHANUMERIC, text.length()));
+    if (packAlphanumeric(text, bb) != text.length())
+      throw new IllegalArgumentException("String contains unencodable characters in alphanumeric mode");
+    return new QrSegment(Mode.ALPHANUMERIC, text.length(), bb.data, bb.bitLength);
+  }
+
+  public static List<QrSegment> makeSegments(String text) {
+    return makeSegments((CharSequence) text);
+  }
+
+  public static List<QrSegment> makeSegments(CharSequence text) {
+    Objects.requireNonNull(text);
+    List<QrSegment> result = new ArrayList<>(1);
+    result.add(makeSegment(text));
+    return result;
+  }
+
+  private static QrSegment makeSegment(CharSequence text) {
+    Mode mode = classify(text);
+    BitBuffer bb = new BitBuffer(capacityBits(mode, text.length()));
+    int numChars = switch (mode) {
+      case NUMERIC -> packNumeric(text, bb);
+      case ALPHANUMERIC -> packAlphanumeric(text, bb);
+      default -> packUtf8(text, bb);
+    };
+    return new QrSegment(mode, numChars, bb.data, bb.bitLength);
+  }
+
+  /**
+   * The most compact of numeric, alphanumeric and byte mode that holds every character, in one scan that stops
+   * at the first character outside the alphanumeric set.
+   */
+  static Mode classify(CharSequence text) {
+    Mode mode = Mode.NUMERIC;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      char c = text.charAt(i);
+      if (c >= '0' && c <= '9')
+        continue;
+      if (c >= ALPHANUMERIC_MAP.length || ALPHANUMERIC_MAP[c] == -1)
+        return Mode.BYTE;
+      mode = Mode.ALPHANUMERIC;
+    }
+    return mode;
+  }
+
+  /**
+   * Initial {@link BitBuffer} capacity for packing {@code numChars} characters in the given mode, a little over
+   * the exact size for numeric and alphanumeric and one byte per character for UTF-8, which grows as needed.
+   */
+  static int capacityBits(Mode mode, int numChars) {
+    long bits = switch (mode) {
+      case NUMERIC -> numChars * 10L / 3 + 10;
+      case ALPHANUMERIC -> numChars * 11L / 2 + 11;
+      default -> numChars * 8L + 16;
+    };
+    if (bits > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Data too long");
+    return (int) bits;
+  }
+
+  static int packNumeric(CharSequence digits, BitBuffer bb) {
     int accumData = 0;
     int accumCount = 0;
-    for (int i = 0; i < digits.length(); i++) {
+    int i = 0;
+    for (int length = digits.length(); i < length; i++) {
       char c = digits.charAt(i);
       if (c < '0' || c > '9')
-        throw new IllegalArgumentException("String contains non-numeric characters");
+        return i;
       accumData = accumData * 10 + (c - '0');
       accumCount++;
       if (accumCount == 3) {
@@ -50,18 +144,17 @@ public final class QrSegment {
     }
     if (accumCount > 0)
       bb.appendBits(accumData, accumCount * 3 + 1);
-    return new QrSegment(Mode.NUMERIC, digits.length(), bb.data, bb.bitLength);
+    return i;
   }
 
-  public static QrSegment makeAlphanumeric(String text) {
-    Objects.requireNonNull(text);
-    BitBuffer bb = new BitBuffer();
+  static int packAlphanumeric(CharSequence text, BitBuffer bb) {
     int accumData = 0;
     int accumCount = 0;
-    for (int i = 0; i < text.length(); i++) {
+    int i = 0;
+    for (int length = text.length(); i < length; i++) {
       char c = text.charAt(i);
       if (c >= ALPHANUMERIC_MAP.length || ALPHANUMERIC_MAP[c] == -1)
-        throw new IllegalArgumentException("String contains unencodable characters in alphanumeric mode");
+        return i;
       accumData = accumData * 45 + ALPHANUMERIC_MAP[c];
       accumCount++;
       if (accumCount == 2) {
@@ -72,26 +165,47 @@ public final class QrSegment {
     }
     if (accumCount > 0)
       bb.appendBits(accumData, 6);
-    return new QrSegment(Mode.ALPHANUMERIC, text.length(), bb.data, bb.bitLength);
+    return i;
   }
 
-  public static List<QrSegment> makeSegments(String text) {
-    Objects.requireNonNull(text);
-
-
-    List<QrSegment> result = new ArrayList<>();
-    /*if (text.equals("")) ;
-    else*/
-    if (isNumeric(text))
-      result.add(makeNumeric(text));
-    else if (isAlphanumeric(text))
-      result.add(makeAlphanumeric(text));
-    else
-      result.add(makeBytes(text.getBytes(StandardCharsets.UTF_8)));
-    return result;
+  static int packUtf8(CharSequence text, BitBuffer bb) {
+    int numBytes = 0;
+    for (int i = 0, length = text.length(); i < length; i++) {
+      int c = text.charAt(i);
+      if (c < 0x80) {
+        bb.appendBits(c, 8);
+        numBytes++;
+      } else if (c < 0x800) {
+        bb.appendBits(0xC0 | (c >>> 6), 8);
+        bb.appendBits(0x80 | (c & 0x3F), 8);
+        numBytes += 2;
+      } else if (Character.isSurrogate((char) c)) {
+        if (Character.isHighSurrogate((char) c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+          int cp = Character.toCodePoint((char) c, text.charAt(++i));
+          bb.appendBits(0xF0 | (cp >>> 18), 8);
+          bb.appendBits(0x80 | (cp >>> 12 & 0x3F), 8);
+          bb.appendBits(0x80 | (cp >>> 6 & 0x3F), 8);
+          bb.appendBits(0x80 | (cp & 0x3F), 8);
+          numBytes += 4;
+        } else {
+          bb.appendBits('?', 8);
+          numBytes++;
+        }
+      } else {
+        bb.appendBits(0xE0 | (c >>> 12), 8);
+        bb.appendBits(0x80 | (c >>> 6 & 0x3F), 8);
+        bb.appendBits(0x80 | (c & 0x3F), 8);
+        numBytes += 3;
+      }
+    }
+    return numBytes;
   }
 
   public static boolean isNumeric(String text) {
+    return isNumeric((CharSequence) text);
+  }
+
+  public static boolean isNumeric(CharSequence text) {
     for (int i = 0; i < text.length(); i++) {
       char c = text.charAt(i);
       if (c < '0' || c > '9')
@@ -101,6 +215,10 @@ public final class QrSegment {
   }
 
   public static boolean isAlphanumeric(String text) {
+    return isAlphanumeric((CharSequence) text);
+  }
+
+  public static boolean isAlphanumeric(CharSequence text) {
     for (int i = 0; i < text.length(); i++) {
       char c = text.charAt(i);
       if (c >= ALPHANUMERIC_MAP.length || ALPHANUMERIC_MAP[c] == -1)
@@ -111,19 +229,36 @@ public final class QrSegment {
 
   public final Mode mode;
   public final int numChars;
-  final int[] data;
+  final long[] data;
   final int bitLength;
 
 
-  public QrSegment(Mode md, int numCh, int[] data, int bitLen) {
+  public QrSegment(Mode md, int numCh, long[] data, int bitLen) {
     mode = Objects.requireNonNull(md);
     this.data = Objects.requireNonNull(data);
-    if (numCh < 0 || bitLen < 0 || bitLen > data.length * 32L)
+    if (numCh < 0 || bitLen < 0 || bitLen > data.length * 64L)
       throw new IllegalArgumentException("Invalid value");
     numChars = numCh;
     bitLength = bitLen;
   }
 
+  /**
+   * Same as {@link #QrSegment(Mode, int, long[], int)} with the bits packed big-endian into 32-bit words.
+   */
+  public QrSegment(Mode md, int numCh, int[] data, int bitLen) {
+    this(md, numCh, toLongWords(data, bitLen), bitLen);
+  }
+
+  private static long[] toLongWords(int[] data, int bitLen) {
+    Objects.requireNonNull(data);
+    if (bitLen < 0 || bitLen > data.length * 32L)
+      throw new IllegalArgumentException("Invalid value");
+    long[] result = new long[(data.length + 1) >>> 1];
+    for (int i = 0; i < data.length; i++)
+      result[i >>> 1] |= (data[i] & 0xFFFFFFFFL) << (~i << 5 & 32);
+    return result;
+  }
+
   static int getTotalBits(List<QrSegment> segs, int version) {
     Objects.requireNonNull(segs);
     long result = 0;
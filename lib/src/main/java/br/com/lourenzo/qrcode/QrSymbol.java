@@ -0,0 +1,41 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+/**
+ * A finished symbol, either a regular {@link QrCode} or a {@link MicroQrCode}, as seen by renderers.
+ */
+public interface QrSymbol {
+
+  int getVersion();
+
+  int getSize();
+
+  QrCode.Ecc getErrorCorrectionLevel();
+
+  int getMask();
+
+  boolean getModule(int x, int y);
+
+  /**
+   * Copies row {@code y} into {@code words}, module {@code x} at bit {@code x & 63} of
+   * {@code words[x >>> 6]}. The array must hold at least {@code (size + 63) / 64} elements.
+   */
+  void getRow(int y, long[] words);
+
+  /**
+   * Micro QR symbols have a single finder pattern, in the top left corner.
+   */
+  boolean isMicro();
+
+}
@@ -12,31 +12,57 @@
 
 package br.com.lourenzo.qrcode;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
 final class QrTemplate {
 
   public static final Memoizer<Integer, QrTemplate> MEMOIZER
-    = new Memoizer<>(QrTemplate::new);
+    = new Memoizer<>("QrTemplate", QrTemplate::new);
+
+  private static final int MAX_SIZE = QrCode.MAX_VERSION * 4 + 17;
 
   private final int version;
   private final int size;
-  final int[] template;
-  final int[][] masks;
-  final int[] dataOutputBitIndexes;
+  private final int rowWords;
+  final long[] template;
+  final long[] dataModules;
+  final CodewordPlacement placement;
+  final RunPrefix[] rowPrefixes;
+  final RunPrefix[] columnPrefixes;
+  final FixedSpan[][] rowSpans;
+  final FixedSpan[][] columnSpans;
 
-  private int[] isFunction;
+  private long[] isFunction;
+  private long[] isFormat;
 
   private QrTemplate(int ver) {
     if (ver < QrCode.MIN_VERSION || ver > QrCode.MAX_VERSION)
       throw new IllegalArgumentException("Version out of range");
     version = ver;
     size = version * 4 + 17;
-    template = new int[(size * size + 31) / 32];
-    isFunction = new int[template.length];
+    rowWords = getRowWords(size);
+    template = new long[size * rowWords];
+    isFunction = new long[template.length];
+    isFormat = new long[template.length];
 
     drawFunctionPatterns();
-    masks = generateMasks();
-    dataOutputBitIndexes = generateZigzagScan();
+    dataModules = getDataModules(isFunction, size);
+    placement = new CodewordPlacement(size, isFunction, 6, getNumRawDataModules(version) / 8 * 8);
+    rowPrefixes = new RunPrefix[size];
+    columnPrefixes = new RunPrefix[size];
+    rowSpans = new FixedSpan[size][];
+    columnSpans = new FixedSpan[size][];
+    for (int i = 0; i < size; i++) {
+      rowPrefixes[i] = scanFixedPrefix(i, false);
+      columnPrefixes[i] = scanFixedPrefix(i, true);
+      rowSpans[i] = scanFixedSpans(i, false, rowPrefixes[i].length());
+      columnSpans[i] = scanFixedSpans(i, true, columnPrefixes[i].length());
+    }
     isFunction = null;
+    isFormat = null;
   }
 
   private void drawFunctionPatterns() {
@@ -67,18 +93,18 @@ final class QrTemplate {
   private void drawDummyFormatBits() {
 
     for (int i = 0; i <= 5; i++)
-      darkenFunctionModule(8, i, 0);
-    darkenFunctionModule(8, 7, 0);
-    darkenFunctionModule(8, 8, 0);
-    darkenFunctionModule(7, 8, 0);
+      reserveFormatModule(8, i);
+    reserveFormatModule(8, 7);
+    reserveFormatModule(8, 8);
+    reserveFormatModule(7, 8);
     for (int i = 9; i < 15; i++)
-      darkenFunctionModule(14 - i, 8, 0);
+      reserveFormatModule(14 - i, 8);
 
 
     for (int i = 0; i < 8; i++)
-      darkenFunctionModule(size - 1 - i, 8, 0);
+      reserveFormatModule(size - 1 - i, 8);
     for (int i = 8; i < 15; i++)
-      darkenFunctionModule(8, size - 15 + i, 0);
+      reserveFormatModule(8, size - 15 + i);
     darkenFunctionModule(8, size - 8, 1);
   }
 
@@ -119,67 +145,130 @@ final class QrTemplate {
     }
   }
 
-  private int[][] generateMasks() {
-    int[][] result = new int[8][template.length];
-    for (int mask = 0; mask < result.length; mask++) {
-      int[] maskModules = result[mask];
-      for (int y = 0, i = 0; y < size; y++) {
-        for (int x = 0; x < size; x++, i++) {
-          boolean invert = switch (mask) {
-            case 0 -> (x + y) % 2 == 0;
-            case 1 -> y % 2 == 0;
-            case 2 -> x % 3 == 0;
-            case 3 -> (x + y) % 3 == 0;
-            case 4 -> (x / 3 + y / 2) % 2 == 0;
-            case 5 -> x * y % 2 + x * y % 3 == 0;
-            case 6 -> (x * y % 2 + x * y % 3) % 2 == 0;
-            case 7 -> ((x + y) % 2 + x * y % 3) % 2 == 0;
-            default -> throw new AssertionError();
-          };
-          int bit = (invert ? 1 : 0) & ~getModule(isFunction, x, y);
-          maskModules[i >>> 5] |= bit << i;
-        }
+  /**
+   * Runs the N1/N3 penalty scan of {@link QrCode} over the leading modules of a row or column that no
+   * mask or format information can change. Lines made only of such modules are scored to the end.
+   */
+  private RunPrefix scanFixedPrefix(int line, boolean vertical) {
+    int[] runHistory = new int[7];
+    int runColor = 0;
+    int runLength = 0;
+    int score = 0;
+    int i;
+    for (i = 0; i < size; i++) {
+      int x = vertical ? line : i;
+      int y = vertical ? i : line;
+      if (getModule(isFunction, x, y) == 0 || getModule(isFormat, x, y) != 0)
+        break;
+      int c = getModule(template, x, y);
+      if (c == runColor) {
+        runLength++;
+        if (runLength == 5)
+          score += QrCode.PENALTY_N1;
+        else if (runLength > 5)
+          score++;
+      } else {
+        QrCode.finderPenaltyAddHistory(runLength, runHistory, size);
+        if (runColor == 0)
+          score += QrCode.finderPenaltyCountPatterns(runHistory, size) * QrCode.PENALTY_N3;
+        runColor = c;
+        runLength = 1;
       }
     }
-    return result;
+    if (i == size)
+      score += QrCode.finderPenaltyTerminateAndCount(runColor, runLength, runHistory, size) * QrCode.PENALTY_N3;
+    return new RunPrefix(i, runColor, runLength, runHistory, score);
   }
 
-  private int[] generateZigzagScan() {
-    int[] result = new int[getNumRawDataModules(version) / 8 * 8];
-    int i = 0;
-    for (int right = size - 1; right >= 1; right -= 2) {
-      if (right == 6)
-        right = 5;
-      for (int vert = 0; vert < size; vert++) {
-        for (int j = 0; j < 2; j++) {
-          int x = right - j;
-          boolean upward = ((right + 1) & 2) == 0;
-          int y = upward ? size - 1 - vert : vert;
-          if (getModule(isFunction, x, y) == 0 && i < result.length) {
-            result[i] = y * size + x;
-            i++;
-          }
+  /**
+   * Splits the rest of a line, from {@code from} on, into the runs of its maximal spans of fixed modules
+   * (alignment patterns, crossing timing patterns, version information, the far finder pattern), so the
+   * penalty scan can step over each span run by run instead of module by module. Spans with as many runs
+   * as modules save nothing and are left to the module scan.
+   */
+  private FixedSpan[] scanFixedSpans(int line, boolean vertical, int from) {
+    List<FixedSpan> spans = new ArrayList<>();
+    int[] runs = new int[size];
+    for (int i = from; i < size; ) {
+      if (!isFixed(line, i, vertical)) {
+        i++;
+        continue;
+      }
+      int start = i;
+      int firstColor = vertical ? getModule(template, line, i) : getModule(template, i, line);
+      int color = firstColor;
+      int numRuns = 0;
+      runs[0] = 0;
+      for (; i < size && isFixed(line, i, vertical); i++) {
+        int c = vertical ? getModule(template, line, i) : getModule(template, i, line);
+        if (c != color) {
+          runs[++numRuns] = 0;
+          color = c;
         }
+        runs[numRuns]++;
       }
+      if (numRuns + 1 < i - start)
+        spans.add(new FixedSpan(start, i, firstColor, Arrays.copyOf(runs, numRuns + 1)));
+    }
+    return spans.toArray(new FixedSpan[0]);
+  }
+
+  private boolean isFixed(int line, int i, boolean vertical) {
+    int x = vertical ? line : i;
+    int y = vertical ? i : line;
+    return getModule(isFunction, x, y) != 0 && getModule(isFormat, x, y) == 0;
+  }
+
+  BitSet getCodewordsWithinRadius(int radius) {
+    return placement.getCodewordsWithinRadius(size, radius);
+  }
+
+  /**
+   * XORs mask pattern {@code mask} into the data modules of a grid of this version. Mask rows repeat every
+   * 12 rows, so they are taken from {@link #MASK_ROWS} rather than stored per version.
+   */
+  void applyMask(int mask, long[] modules) {
+    applyMask(MASK_ROWS[mask], dataModules, rowWords, modules);
+  }
+
+  static void applyMask(long[][] maskRows, long[] dataModules, int rowWords, long[] modules) {
+    if (modules.length != dataModules.length)
+      throw new IllegalArgumentException();
+    for (int i = 0, y = 0; i < modules.length; y++) {
+      long[] pattern = maskRows[y % MASK_PERIOD];
+      for (int w = 0; w < rowWords; w++, i++)
+        modules[i] ^= pattern[w] & dataModules[i];
+    }
+  }
+
+  static long[] getDataModules(long[] isFunction, int size) {
+    int rowWords = getRowWords(size);
+    long[] result = new long[isFunction.length];
+    for (int i = 0; i < result.length; i++) {
+      int valid = size - (i % rowWords << 6);
+      result[i] = ~isFunction[i] & (valid < 64 ? (1L << valid) - 1 : -1L);
     }
-    assert i == result.length;
     return result;
   }
 
-  private int getModule(int[] grid, int x, int y) {
+  private int getModule(long[] grid, int x, int y) {
     assert 0 <= x && x < size;
     assert 0 <= y && y < size;
-    int i = y * size + x;
-    return QrCode.getBit(grid[i >>> 5], i);
+    return QrCode.getBit(grid[y * rowWords + (x >>> 6)], x);
   }
 
   private void darkenFunctionModule(int x, int y, int enable) {
     assert 0 <= x && x < size;
     assert 0 <= y && y < size;
     assert enable == 0 || enable == 1;
-    int i = y * size + x;
-    template[i >>> 5] |= enable << i;
-    isFunction[i >>> 5] |= 1 << i;
+    int i = y * rowWords + (x >>> 6);
+    template[i] |= (long) enable << x;
+    isFunction[i] |= 1L << x;
+  }
+
+  private void reserveFormatModule(int x, int y) {
+    darkenFunctionModule(x, y, 0);
+    isFormat[y * rowWords + (x >>> 6)] |= 1L << x;
   }
 
   private int[] getAlignmentPatternPositions() {
@@ -197,6 +286,10 @@ final class QrTemplate {
     }
   }
 
+  static int getRowWords(int size) {
+    return (size + 63) >>> 6;
+  }
+
   static int getNumRawDataModules(int ver) {
     if (ver < QrCode.MIN_VERSION || ver > QrCode.MAX_VERSION)
       throw new IllegalArgumentException("Version number out of range");
@@ -210,4 +303,91 @@ final class QrTemplate {
     return result;
   }
 
+  private static final int MASK_PERIOD = 12;
+
+  /**
+   * Rows of the eight mask patterns for {@code y % 12}, wide enough for version 40.
+   */
+  static final long[][][] MASK_ROWS = new long[8][MASK_PERIOD][getRowWords(MAX_SIZE)];
+
+  static {
+    for (int mask = 0; mask < MASK_ROWS.length; mask++) {
+      for (int y = 0; y < MASK_PERIOD; y++) {
+        long[] row = MASK_ROWS[mask][y];
+        for (int x = 0; x < row.length << 6; x++) {
+          boolean invert = switch (mask) {
+            case 0 -> (x + y) % 2 == 0;
+            case 1 -> y % 2 == 0;
+            case 2 -> x % 3 == 0;
+            case 3 -> (x + y) % 3 == 0;
+            case 4 -> (x / 3 + y / 2) % 2 == 0;
+            case 5 -> x * y % 2 + x * y % 3 == 0;
+            case 6 -> (x * y % 2 + x * y % 3) % 2 == 0;
+            case 7 -> ((x + y) % 2 + x * y % 3) % 2 == 0;
+            default -> throw new AssertionError();
+          };
+          if (invert)
+            row[x >>> 6] |= 1L << x;
+        }
+      }
+    }
+  }
+
+  /**
+   * Penalty scan state after the first {@code length} modules of a line; {@code length == size} means
+   * the line is fully scored.
+   */
+  record RunPrefix(int length, int runColor, int runLength, int[] runHistory, int score) {
+  }
+
+  /**
+   * Modules {@code start} to {@code end} of a line, fixed for every mask, as alternating runs starting with
+   * {@code firstColor}. {@code score} is the N1 penalty of every run but the first, which may continue the
+   * run before the span.
+   */
+  record FixedSpan(int start, int end, int firstColor, int[] runs, int score) {
+
+    FixedSpan(int start, int end, int firstColor, int[] runs) {
+      this(start, end, firstColor, runs, interiorScore(runs));
+    }
+
+    private static int interiorScore(int[] runs) {
+      int result = 0;
+      for (int i = 1; i < runs.length; i++)
+        result += runPenalty(runs[i]);
+      return result;
+    }
+
+    /**
+     * Continues the N1/N3 scan of a line through this span and returns the penalty added. {@code run} holds
+     * the color and length of the current run, both updated to the run open at the end of the span.
+     */
+    int scan(int[] run, int[] runHistory, int size) {
+      int color = run[0];
+      int length = run[1];
+      int result = score;
+      int i = 0;
+      if (firstColor == color) {
+        result += runPenalty(length + runs[0]) - runPenalty(length);
+        length += runs[0];
+        i = 1;
+      } else
+        result += runPenalty(runs[0]);
+      for (; i < runs.length; i++) {
+        QrCode.finderPenaltyAddHistory(length, runHistory, size);
+        if (color == 0)
+          result += QrCode.finderPenaltyCountPatterns(runHistory, size) * QrCode.PENALTY_N3;
+        color ^= 1;
+        length = runs[i];
+      }
+      run[0] = color;
+      run[1] = length;
+      return result;
+    }
+
+    private static int runPenalty(int length) {
+      return length >= 5 ? QrCode.PENALTY_N1 + length - 5 : 0;
+    }
+  }
+
 }
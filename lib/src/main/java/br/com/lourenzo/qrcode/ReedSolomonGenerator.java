@@ -18,7 +18,7 @@ import java.util.Objects;
 final class ReedSolomonGenerator {
 
   public static final Memoizer<Integer, ReedSolomonGenerator> MEMOIZER
-    = new Memoizer<>(ReedSolomonGenerator::new);
+    = new Memoizer<>("ReedSolomonGenerator", ReedSolomonGenerator::new);
 
   private final byte[][] polynomialMultiply;
 
@@ -62,6 +62,50 @@ final class ReedSolomonGenerator {
     }
   }
 
+  /**
+   * Remainders of the unit blocks of {@code dataLen} codewords: entry {@code i} is the ECC of a block that is
+   * zero except for a 1 at position {@code i}. The code is linear, so the ECC of any block is the XOR of
+   * {@code data[i] * result[i]} over its codewords.
+   */
+  byte[][] getUnitRemainders(int dataLen) {
+    int degree = polynomialMultiply[0].length;
+    byte[][] result = new byte[dataLen][];
+    byte[] state = polynomialMultiply[1].clone();
+    for (int i = dataLen - 1; i >= 0; i--) {
+      result[i] = state;
+      byte[] table = polynomialMultiply[state[0] & 0xFF];
+      byte[] next = new byte[degree];
+      for (int j = 0; j < degree - 1; j++)
+        next[j] = (byte) (state[j + 1] ^ table[j]);
+      next[degree - 1] = table[degree - 1];
+      state = next;
+    }
+    return result;
+  }
+
+  static void multiplyAccumulate(byte[] vector, int scalar, byte[] result) {
+    assert scalar >> 8 == 0 && vector.length == result.length;
+    if (scalar == 0)
+      return;
+    int logScalar = LOG[scalar];
+    for (int j = 0; j < result.length; j++) {
+      int v = vector[j] & 0xFF;
+      if (v != 0)
+        result[j] ^= EXP[LOG[v] + logScalar];
+    }
+  }
+
+  private static final byte[] EXP = new byte[510];
+
+  private static final int[] LOG = new int[256];
+
+  static {
+    for (int i = 0, x = 1; i < 255; i++, x = multiply(x, 0x02)) {
+      EXP[i] = EXP[i + 255] = (byte) x;
+      LOG[x] = i;
+    }
+  }
+
   private static int multiply(int x, int y) {
     assert x >> 8 == 0 && y >> 8 == 0;
 
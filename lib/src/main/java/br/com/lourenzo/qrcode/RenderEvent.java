@@ -0,0 +1,67 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("br.com.lourenzo.qrcode.Render")
+@Label("QR Code SVG Render")
+@Category("QR Code")
+@Description("Encoding and SVG rendering of a single QR Code by SvgQrCode")
+@StackTrace(false)
+final class RenderEvent extends jdk.jfr.Event {
+
+  @Label("Version")
+  int version;
+
+  @Label("Error Correction Level")
+  String errorCorrectionLevel;
+
+  @Label("Mask")
+  int mask;
+
+  @Label("Micro QR")
+  boolean micro;
+
+  @Label("Payload Length")
+  int payloadLength;
+
+  @Label("Size")
+  @Description("Modules per side")
+  int size;
+
+  @Label("Output Size")
+  @DataAmount
+  long outputBytes;
+
+  @Label("Encode")
+  @Timespan
+  long encodeNanos;
+
+  @Label("Render")
+  @Timespan
+  long renderNanos;
+
+  static RenderEvent started() {
+    RenderEvent event = new RenderEvent();
+    event.begin();
+    return event;
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Feeds a single pass over a symbol's rows to every registered sink, so producing several formats
+ * costs one encode and one traversal of the module grid.
+ */
+public final class RenderPipeline {
+
+  private final List<RenderSink> sinks = new ArrayList<>();
+
+  public RenderPipeline add(RenderSink sink) {
+    sinks.add(Objects.requireNonNull(sink));
+    return this;
+  }
+
+  public void render(QrSymbol symbol) throws IOException {
+    Objects.requireNonNull(symbol);
+    for (RenderSink sink : sinks)
+      sink.begin(symbol);
+
+    int size = symbol.getSize();
+    long[] row = new long[QrTemplate.getRowWords(size)];
+    for (int y = 0; y < size; y++) {
+      symbol.getRow(y, row);
+      for (RenderSink sink : sinks)
+        sink.row(y, row);
+    }
+
+    for (RenderSink sink : sinks)
+      sink.end();
+  }
+
+}
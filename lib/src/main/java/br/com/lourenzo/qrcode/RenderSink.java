@@ -0,0 +1,32 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.IOException;
+
+/**
+ * One output of a {@link RenderPipeline}. Sinks write to their own stream and leave it open.
+ */
+public interface RenderSink {
+
+  void begin(QrSymbol symbol) throws IOException;
+
+  /**
+   * Receives row {@code y} in the layout of {@link QrSymbol#getRow(int, long[])}. The array is
+   * reused for the next row and must not be retained.
+   */
+  void row(int y, long[] modules) throws IOException;
+
+  void end() throws IOException;
+
+}
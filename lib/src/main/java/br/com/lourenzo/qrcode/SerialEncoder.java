@@ -0,0 +1,243 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Encodes runs of payloads that share a fixed prefix, such as sequential ticket URLs. The prefix is
+ * segmented once per mode, and for every version it is laid out in, the error correction contribution of
+ * the codewords it fills alone is computed once. Each suffix then only packs its own characters and
+ * folds its codewords into that contribution, which Reed-Solomon linearity makes exact. Results are
+ * identical to {@code QrCode.encodeText(prefix + suffix, ecl)}.
+ *
+ * <p>Instances are immutable apart from their lazily filled caches and may be shared between threads.
+ */
+public final class SerialEncoder {
+
+  private static final QrSegment.Mode[] MODES = {
+    QrSegment.Mode.NUMERIC, QrSegment.Mode.ALPHANUMERIC, QrSegment.Mode.BYTE
+  };
+
+  private final String prefix;
+  private final QrCode.Ecc ecl;
+  private final boolean prefixNumeric;
+  private final boolean prefixAlphanumeric;
+  private final PrefixBits[] prefixBits = new PrefixBits[MODES.length];
+  private final Layout[] layouts = new Layout[MODES.length * 4 * (QrCode.MAX_VERSION + 1)];
+
+  public SerialEncoder(CharSequence prefix, QrCode.Ecc ecl) {
+    this.prefix = Objects.requireNonNull(prefix).toString();
+    this.ecl = Objects.requireNonNull(ecl);
+    prefixNumeric = QrSegment.isNumeric(this.prefix);
+    prefixAlphanumeric = QrSegment.isAlphanumeric(this.prefix);
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public QrCode.Ecc getErrorCorrectionLevel() {
+    return ecl;
+  }
+
+  public QrCode encode(CharSequence suffix) {
+    Objects.requireNonNull(suffix);
+    EncodeEvent event = EncodeEvent.started();
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
+
+    int modeIndex = prefixNumeric && QrSegment.isNumeric(suffix) ? 0
+      : prefixAlphanumeric && QrSegment.isAlphanumeric(suffix) ? 1 : 2;
+    PrefixBits fixed = getPrefixBits(modeIndex);
+    QrSegment.Mode mode = fixed.mode;
+    CharSequence text = fixed.carry.isEmpty() ? suffix : fixed.carry + suffix;
+    BitBuffer tail = new BitBuffer(QrSegment.capacityBits(mode, text.length()));
+    int tailChars = switch (mode) {
+      case NUMERIC -> QrSegment.packNumeric(text, tail);
+      case ALPHANUMERIC -> QrSegment.packAlphanumeric(text, tail);
+      default -> QrSegment.packUtf8(text, tail);
+    };
+    long numChars = (long) fixed.numChars + tailChars;
+    event.segmentationNanos = QrMetrics.stage(QrMetrics.Stage.SEGMENTATION, start, timed);
+
+
+    start = QrMetrics.now(timed);
+    long payloadBits = (long) fixed.bitLength + tail.bitLength;
+    QrCode.Ecc ecl = this.ecl;
+    int version, dataUsedBits;
+    for (version = QrCode.MIN_VERSION; ; version++) {
+      int dataCapacityBits = QrCode.getNumDataCodewords(version, ecl) * 8;
+      int ccbits = mode.numCharCountBits(version);
+      long usedBits = 4L + ccbits + payloadBits;
+      dataUsedBits = numChars < (1 << ccbits) && usedBits <= Integer.MAX_VALUE ? (int) usedBits : -1;
+      if (dataUsedBits != -1 && dataUsedBits <= dataCapacityBits)
+        break;
+      if (version >= QrCode.MAX_VERSION) {
+        String msg = "Segment too long";
+        if (dataUsedBits != -1)
+          msg = String.format("Data length = %d bits, Max capacity = %d bits", dataUsedBits, dataCapacityBits);
+        throw new DataTooLongException(msg);
+      }
+    }
+
+    for (QrCode.Ecc newEcl : QrCode.Ecc.values()) {
+      if (dataUsedBits <= QrCode.getNumDataCodewords(version, newEcl) * 8)
+        ecl = newEcl;
+    }
+    event.versionSelectionNanos = QrMetrics.stage(QrMetrics.Stage.VERSION_SELECTION, start, timed);
+    event.payloadLength = (int) numChars;
+
+
+    int dataCapacityBits = QrCode.getNumDataCodewords(version, ecl) * 8;
+    BitBuffer bb = new BitBuffer(dataCapacityBits);
+    bb.appendBits(mode.modeBits, 4);
+    bb.appendBits((int) numChars, mode.numCharCountBits(version));
+    bb.appendBits(fixed.data, fixed.bitLength);
+    bb.appendBits(tail.data, tail.bitLength);
+    assert bb.bitLength == dataUsedBits;
+
+    bb.appendBits(0, Math.min(4, dataCapacityBits - bb.bitLength));
+    bb.appendBits(0, (8 - bb.bitLength % 8) % 8);
+    for (int padByte = 0xEC; bb.bitLength < dataCapacityBits; padByte ^= 0xEC ^ 0x11)
+      bb.appendBits(padByte, 8);
+
+    byte[] data = bb.getBytes();
+    Layout layout = getLayout(modeIndex, version, ecl);
+    return new QrCode(version, ecl, data, -1,
+      (block, dataOff, dataLen, result) -> layout.getRemainder(data, block, dataOff, dataLen, result), event);
+  }
+
+  public Stream<QrCode> encode(Stream<? extends CharSequence> suffixes) {
+    Objects.requireNonNull(suffixes);
+    return suffixes.map(this::encode);
+  }
+
+  private PrefixBits getPrefixBits(int modeIndex) {
+    PrefixBits result = prefixBits[modeIndex];
+    if (result == null) {
+      result = new PrefixBits(MODES[modeIndex], prefix);
+      prefixBits[modeIndex] = result;
+    }
+    return result;
+  }
+
+  private Layout getLayout(int modeIndex, int version, QrCode.Ecc ecl) {
+    int index = (modeIndex * 4 + ecl.ordinal()) * (QrCode.MAX_VERSION + 1) + version;
+    Layout result = layouts[index];
+    if (result == null) {
+      result = new Layout(getPrefixBits(modeIndex), version, ecl);
+      layouts[index] = result;
+    }
+    return result;
+  }
+
+  /**
+   * The part of the prefix whose bits do not depend on the suffix. Numeric and alphanumeric characters are
+   * packed in groups, and a trailing high surrogate may pair with the suffix, so such leftovers are
+   * carried over and packed together with each suffix.
+   */
+  private static final class PrefixBits {
+
+    final QrSegment.Mode mode;
+    final long[] data;
+    final int bitLength;
+    final int numChars;
+    final String carry;
+
+    PrefixBits(QrSegment.Mode mode, String prefix) {
+      this.mode = mode;
+      int length = prefix.length();
+      int fixedLength = switch (mode) {
+        case NUMERIC -> length - length % 3;
+        case ALPHANUMERIC -> length - length % 2;
+        default -> length > 0 && Character.isHighSurrogate(prefix.charAt(length - 1)) ? length - 1 : length;
+      };
+      String head = prefix.substring(0, fixedLength);
+      BitBuffer bb = new BitBuffer(QrSegment.capacityBits(mode, fixedLength));
+      numChars = switch (mode) {
+        case NUMERIC -> QrSegment.packNumeric(head, bb);
+        case ALPHANUMERIC -> QrSegment.packAlphanumeric(head, bb);
+        default -> QrSegment.packUtf8(head, bb);
+      };
+      data = bb.data;
+      bitLength = bb.bitLength;
+      carry = prefix.substring(fixedLength);
+    }
+
+  }
+
+  /**
+   * Codeword layout of the prefix in one version and error correction level. The codewords lying wholly
+   * inside the prefix bits are the same for every suffix; their per-block ECC is computed once, and the
+   * remaining codewords are added through the unit remainders of their block positions.
+   */
+  private static final class Layout {
+
+    private final int fixedStart;
+    private final int fixedEnd;
+    private final byte[] fixedCodewords;
+    private final int numShortBlocks;
+    private final byte[][] fixedEcc;
+    private final byte[][] shortUnits;
+    private final byte[][] longUnits;
+
+    Layout(PrefixBits prefix, int version, QrCode.Ecc ecl) {
+      int dataLen = QrCode.getNumDataCodewords(version, ecl);
+      int headerBits = 4 + prefix.mode.numCharCountBits(version);
+      fixedStart = (headerBits + 7) / 8;
+      fixedEnd = Math.max(Math.min((headerBits + prefix.bitLength) / 8, dataLen), fixedStart);
+
+      BitBuffer bb = new BitBuffer(headerBits + prefix.bitLength + 8);
+      bb.appendBits(0, headerBits);
+      bb.appendBits(prefix.data, prefix.bitLength);
+      bb.appendBits(0, (8 - bb.bitLength % 8) % 8);
+      fixedCodewords = Arrays.copyOf(bb.getBytes(), dataLen);
+      Arrays.fill(fixedCodewords, 0, fixedStart, (byte) 0);
+      Arrays.fill(fixedCodewords, fixedEnd, dataLen, (byte) 0);
+
+      int numBlocks = QrCode.getNumBlocks(version, ecl);
+      int blockEccLen = QrCode.getBlockEccLength(version, ecl);
+      int rawCodewords = QrTemplate.getNumRawDataModules(version) / 8;
+      numShortBlocks = numBlocks - rawCodewords % numBlocks;
+      int shortBlockDataLen = rawCodewords / numBlocks - blockEccLen;
+
+      ReedSolomonGenerator rs = ReedSolomonGenerator.MEMOIZER.get(blockEccLen);
+      fixedEcc = new byte[numBlocks][blockEccLen];
+      for (int i = 0, k = 0; i < numBlocks; i++) {
+        int datLen = shortBlockDataLen + (i < numShortBlocks ? 0 : 1);
+        rs.getRemainder(fixedCodewords, k, datLen, fixedEcc[i]);
+        k += datLen;
+      }
+      shortUnits = rs.getUnitRemainders(shortBlockDataLen);
+      longUnits = numShortBlocks < numBlocks ? rs.getUnitRemainders(shortBlockDataLen + 1) : shortUnits;
+    }
+
+    void getRemainder(byte[] data, int block, int dataOff, int dataLen, byte[] result) {
+      System.arraycopy(fixedEcc[block], 0, result, 0, result.length);
+      byte[][] units = block < numShortBlocks ? shortUnits : longUnits;
+      int dataEnd = dataOff + dataLen;
+      int skipFrom = Math.min(Math.max(fixedStart, dataOff), dataEnd);
+      int skipTo = Math.max(Math.min(fixedEnd, dataEnd), skipFrom);
+      assert Arrays.equals(data, skipFrom, skipTo, fixedCodewords, skipFrom, skipTo);
+      for (int k = dataOff; k < skipFrom; k++)
+        ReedSolomonGenerator.multiplyAccumulate(units[k - dataOff], data[k] & 0xFF, result);
+      for (int k = skipTo; k < dataEnd; k++)
+        ReedSolomonGenerator.multiplyAccumulate(units[k - dataOff], data[k] & 0xFF, result);
+    }
+
+  }
+
+}
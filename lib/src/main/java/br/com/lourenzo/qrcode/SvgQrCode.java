@@ -2,11 +2,108 @@ package br.com.lourenzo.qrcode;
 
 import lombok.Builder;
 
-import static java.util.stream.IntStream.range;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 
-@Builder
+@Builder(toBuilder = true)
 public class SvgQrCode {
 
+  /**
+   * Incremented whenever the documents rendered for the same payload and settings change, so renders stored
+   * outside the process can be keyed on it.
+   */
+  public static final int OUTPUT_VERSION = 2;
+
+  private static final String PROLOG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+  private static final String HEADER =
+    "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%s\" height=\"%s\" viewBox=\"0 0 %s %s\">\n";
+
+  private static final String FOOTER = "\n</svg>\n";
+
+  private static final String COMPACT_PROLOG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+  private static final String COMPACT_FOOTER = "</svg>";
+
+  private static final String BACKGROUND_START = "<rect width=\"100%\" height=\"100%\" fill=\"";
+
+  private static final String BACKGROUND_END = "\"/>";
+
+  private static final String GROUP_START = "<g fill=\"";
+
+  private static final String GROUP_START_END = "\">";
+
+  private static final String GROUP_END = "</g>";
+
+  private static final String LOGO_STYLE = """
+    <style type="text/css">
+      .logoMarker{fill:url(#logoGradientPattern);}
+      .logoGray{fill:#7D8082;}
+    </style>
+    """;
+
+  private static final String LOGO_GRADIENT = """
+    <linearGradient id="logoGradientPattern">
+      <stop offset="0" style="stop-color:#EF3F40" />
+      <stop offset="100%" style="stop-color:#483165" />
+    </linearGradient>
+    """;
+
+  private static final String LOGO_PATHS = """
+    <path class="logoMarker" d="M261.5,477.4l13.7,10.1l13.9-9.8C421.6,384.1,412.2,299,402,266.8c-16.1-51-67-85.3-126.5-85.4l0,0
+    c-57.7,0.1-105.6,32.2-121.9,82C131.3,330.9,171.6,410.9,261.5,477.4z M198.2,278.1c9.9-30.1,40.2-49.6,77.2-49.6
+    c38.9,0.1,71.7,21.2,81.7,52.5c13.8,43.6-16.5,98.2-81.3,148C212.5,378,183.7,322.3,198.2,278.1z" />
+    <path class="logoGray" d="M237.1 293.6a38.3 37.2 0 1 0 76.6 0 38.3 37.2 0 1 0-76.6 0M431.6 569.7l3.6-5.5s17-19.9
+    29.5-44.6c-14.2-12.3-21.6-18.7-37.7-32.3-15.9 29.7-31.9 47.2-31.9 47.2-.3.5-1.1.6-1.5.2l-64-58.7c-9.8 8.2-20.5 16.4-32.2 24.6l-9.5 6.7
+    72.8 66.3c.5.4.5 1.2 0 1.6-27.1 23.2-57.3 35.1-90.4 35.1-27.4 0-50.5-7.3-68.2-21.9-17.7-14.6-26.8-32.3-26.8-53.6 0-27.6
+    13.2-49.6 39.1-66-12.8-11.7-24.2-23.7-34.5-35.9-36.8 22.9-59.4 58.9-59.4 102.5 0 37.1 13.4 67 40.8 90.1s63.9 34.7 108.3
+    34.7c49.8 0 92.9-17.6 128.8-52.1.1-.1.4-.1.5 0l47.5 43.3c.2.2.4.3.7.3h71.3c.9 0 1.3-1.1.7-1.7l-87.5-80.3z"/>
+    """;
+
+  private static final ByteBuffer PROLOG_BUFFER = sharedBuffer(PROLOG);
+
+  private static final ByteBuffer FOOTER_BUFFER = sharedBuffer(FOOTER);
+
+  private static final ByteBuffer COMPACT_PROLOG_BUFFER = sharedBuffer(COMPACT_PROLOG);
+
+  private static final ByteBuffer COMPACT_FOOTER_BUFFER = sharedBuffer(COMPACT_FOOTER);
+
+  private static final Memoizer<HeaderKey, ByteBuffer> HEADER_BUFFERS
+    = new Memoizer<>("SvgQrCode.header", key -> sharedBuffer(buildHeader(key)));
+
+  private static final Memoizer<LogoKey, String> LOGOS
+    = new Memoizer<>("SvgQrCode.logo", SvgQrCode::buildLogo);
+
+  private static final Memoizer<FinderKey, String> FINDER_PATTERNS
+    = new Memoizer<>("SvgQrCode.finderPatterns", SvgQrCode::buildFinderPatterns);
+
+  private static final Memoizer<LogoKey, ByteBuffer> LOGO_BUFFERS
+    = new Memoizer<>("SvgQrCode.logoBuffer", key -> sharedBuffer(LOGOS.get(key)));
+
+  private static final Memoizer<FinderKey, ByteBuffer> FINDER_BUFFERS
+    = new Memoizer<>("SvgQrCode.finderPatternsBuffer", key -> sharedBuffer(FINDER_PATTERNS.get(key)));
+
+  private static final Memoizer<MarkupKey, ModuleMarkup> MODULE_MARKUP
+    = new Memoizer<>("SvgQrCode.moduleMarkup", SvgQrCode::buildModuleMarkup);
+
+  private static final Memoizer<DrawnKey, long[]> DRAWN_MODULES
+    = new Memoizer<>("SvgQrCode.drawnModules", SvgQrCode::buildDrawnModules);
+
+  private static final Memoizer<OmissionKey, BitSet> OMITTED_CODEWORDS
+    = new Memoizer<>("SvgQrCode.omittedCodewords",
+    key -> QrTemplate.MEMOIZER.get(key.version()).getCodewordsWithinRadius(key.radius()));
+
   @Builder.Default
   private String backgroundColor = "#FFFFFF";
 
@@ -28,121 +125,858 @@ public class SvgQrCode {
   @Builder.Default
   private Boolean useCustomFinderPatterns = true;
 
-  private QrCode qr;
+  @Builder.Default
+  private QrCode.Ecc minErrorCorrectionLevel = QrCode.Ecc.LOW;
+
+  @Builder.Default
+  private QrCode.Ecc maxErrorCorrectionLevel = QrCode.Ecc.HIGH;
+
+  @Builder.Default
+  private Integer minVersion = QrCode.MIN_VERSION;
+
+  @Builder.Default
+  private Integer maxVersion = QrCode.MAX_VERSION;
+
+  /**
+   * Fraction of each block's error correction capacity that must remain unused after accounting
+   * for the codewords hidden under the logo.
+   */
+  @Builder.Default
+  private Double recoveryMargin = 0.25;
+
+  @Builder.Default
+  private Boolean boostErrorCorrection = true;
+
+  /**
+   * Emits geometry in module units ({@code viewBox} of size + 2 * border) with integer or half-integer
+   * coordinates and no whitespace; {@code scale} then only sets the physical width and height.
+   */
+  @Builder.Default
+  private Boolean compact = false;
+
+  /**
+   * Lets payloads that fit a Micro QR Code (M1 to M4) use one. Micro symbols have no room for the
+   * logo, so only their single finder pattern is drawn when {@code useCustomFinderPatterns} is set.
+   * They count as smaller than version 1, so a {@code minVersion} above 1 rules them out.
+   */
+  @Builder.Default
+  private Boolean allowMicro = false;
+
+  @Builder.Default
+  private ModuleRenderer moduleRenderer = ModuleRenderer.circle();
+
+  @Builder.Default
+  private FinderRenderer finderRenderer = FinderRenderer.rounded();
+
+  /**
+   * Symbol and decision of the current render. Final and initialized, so it is not a builder property and
+   * every built renderer starts with its own.
+   */
+  private final RenderState state = new RenderState();
+
+  public EncodingDecision getEncodingDecision() {
+    return state.encodingDecision;
+  }
 
   public String generateSvg(String url) {
-    qr = QrCode.encodeText(url, QrCode.Ecc.HIGH);
+    RenderEvent event = RenderEvent.started();
+    encode(url, event);
+
+    StringBuilder svg = new StringBuilder(contentsOverhead(state.qr.getSize(), state.qr.isMicro()) + measureModules());
+    renderContents(svg, event);
+    completeRender(event, svg.length());
+    return svg.toString();
+  }
 
-    StringBuilder svg = new StringBuilder();
+  public String generateSvgFile(String url) {
+    RenderEvent event = RenderEvent.started();
+    encode(url, event);
 
-    if (useBackground) {
-      svg
-        .append("\t<rect width=\"100%\" height=\"100%\" fill=\"")
-        .append(backgroundColor)
-        .append("\"/>\n");
+    String header = buildHeader(headerKey());
+    StringBuilder svg = new StringBuilder(documentOverhead(header, state.qr.getSize(), state.qr.isMicro())
+      + measureModules());
+    svg.append(compact ? COMPACT_PROLOG : PROLOG).append(header);
+    renderContents(svg, event);
+    svg.append(compact ? COMPACT_FOOTER : FOOTER);
+    completeRender(event, svg.length());
+    return svg.toString();
+  }
+
+  /**
+   * Predicts the symbol and document {@link #generateSvgFile(String)} would produce for the payload, without
+   * Reed-Solomon or mask work, to reject oversize requests or presize buffers. Throws the same
+   * {@link DataTooLongException} as the renderers when nothing in range fits.
+   */
+  public RenderPlan plan(String url) {
+    List<QrSegment> segs = QrSegment.makeSegments(url);
+    EncodingDecision decision = decideEncoding(segs);
+    int version = decision.version();
+    QrCode.Ecc ecl = decision.errorCorrectionLevel();
+    boolean micro = decision.micro();
+
+    int size;
+    int dataBits;
+    int capacityBits;
+    if (micro) {
+      size = version * 2 + 9;
+      dataBits = MicroQrCode.getTotalBits(segs, version);
+      capacityBits = MicroQrCode.getNumDataBits(version, ecl);
+    } else {
+      size = version * 4 + 17;
+      dataBits = QrSegment.getTotalBits(segs, version);
+      capacityBits = QrCode.getNumDataCodewords(version, ecl) * 8;
     }
 
-    range(0, qr.size)
-      .forEach(y -> range(0, qr.size)
-        .filter(x -> qr.getModule(x, y))
-        .filter(x -> !isFinderPattern(x, y, qr.size))
-        .filter(x -> !isInOmissionZone(x, y, (qr.size - 1) / 2f, (qr.size - 1) / 2f, omitRadius))
-        .forEach(x -> svg.append("\t<circle cx=\"").append((x + border) * scale + scale / 2.0)
-          .append("\" cy=\"").append((y + border) * scale + scale / 2.0)
-          .append("\" r=\"").append(scale / 2.2)
-          .append("\" fill=\"").append(foregroundColor).append("\"/>\n")));
+    long overhead = documentOverhead(buildHeader(headerKey(size)), size, micro);
+    long modules = measureModules(null, size, micro, false);
+    return new RenderPlan(decision, size, dataBits, capacityBits, overhead + modules / 2, overhead + modules);
+  }
 
+  /**
+   * Renders the same document as {@link #generateSvgFile(String)} as a sequence of buffers suitable for
+   * {@link java.nio.channels.GatheringByteChannel#write(ByteBuffer[])}. Only the data modules are encoded
+   * per call; the prolog, header, logo and finder patterns are read-only views over shared direct buffers.
+   */
+  public ByteBuffer[] generateSvgBuffers(String url) {
+    RenderEvent event = RenderEvent.started();
+    encode(url, event);
+
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
+    ByteBuffer prolog = (compact ? COMPACT_PROLOG_BUFFER : PROLOG_BUFFER).duplicate();
+    ByteBuffer header = HEADER_BUFFERS.get(headerKey()).duplicate();
+    ByteBuffer modules = encodeModules();
+    ByteBuffer footer = (compact ? COMPACT_FOOTER_BUFFER : FOOTER_BUFFER).duplicate();
+
+    ByteBuffer[] buffers;
+    if (useCustomFinderPatterns && !state.qr.isMicro()) {
+      buffers = new ByteBuffer[]{
+        prolog,
+        header,
+        modules,
+        LOGO_BUFFERS.get(logoKey()).duplicate(),
+        FINDER_BUFFERS.get(finderKey()).duplicate(),
+        footer
+      };
+    } else if (useCustomFinderPatterns)
+      buffers = new ByteBuffer[]{prolog, header, modules, FINDER_BUFFERS.get(finderKey()).duplicate(), footer};
+    else
+      buffers = new ByteBuffer[]{prolog, header, modules, footer};
+    event.renderNanos = QrMetrics.stage(QrMetrics.Stage.SVG_RENDER, start, timed);
+
+    if (timed) {
+      long bytes = 0;
+      for (ByteBuffer buffer : buffers)
+        bytes += buffer.remaining();
+      completeRender(event, bytes);
+    }
+    return buffers;
+  }
+
+  public CompletableFuture<String> generateSvgAsync(String url, Executor executor) {
+    Objects.requireNonNull(url);
+    SvgQrCode renderer = toBuilder().build();
+    return CompletableFuture.supplyAsync(() -> renderer.generateSvg(url), executor);
+  }
+
+  public CompletableFuture<String> generateSvgFileAsync(String url, Executor executor) {
+    Objects.requireNonNull(url);
+    SvgQrCode renderer = toBuilder().build();
+    return CompletableFuture.supplyAsync(() -> renderer.generateSvgFile(url), executor);
+  }
+
+  /**
+   * Streams the document produced by {@link #generateSvgFile(String)} in chunks of module rows. Encoding and
+   * rendering run on the given executor, only as far ahead as the subscriber has requested. Every subscription
+   * renders independently.
+   */
+  public Flow.Publisher<ByteBuffer> publishSvgFile(String url, Executor executor) {
+    Objects.requireNonNull(url);
+    Objects.requireNonNull(executor);
+    return subscriber -> new SvgSubscription(toBuilder().build(), url, executor, subscriber).start();
+  }
+
+  /**
+   * Encodes the payload with the version and error correction level this renderer would pick, for use
+   * with a {@link RenderPipeline}.
+   */
+  public QrSymbol encodeSymbol(String url) {
+    encode(url, new RenderEvent());
+    return state.qr;
+  }
+
+  /**
+   * Returns a sink that writes the document of {@link #generateSvgFile(String)} for whichever symbol the
+   * pipeline renders, using a copy of this renderer's settings. The logo is only safe to draw over symbols
+   * from {@link #encodeSymbol(String)}.
+   */
+  public RenderSink asSink(OutputStream out) {
+    return new SvgSink(toBuilder().build(), out);
+  }
+
+  /**
+   * Appends the document of {@link #generateSvgFile(String)} as a base64 {@code data:image/svg+xml} URI,
+   * encoding while rendering instead of materializing the document.
+   */
+  public void writeDataUri(String url, Appendable out) throws IOException {
+    writeDataUri(url, out, true);
+  }
+
+  public void writeDataUri(String url, OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, StandardCharsets.US_ASCII);
+    writeDataUri(url, writer, true);
+    writer.flush();
+  }
+
+  /**
+   * Same as {@link #writeDataUri(String, Appendable)} with percent-encoding instead of base64, which is
+   * shorter for the mostly ASCII markup, especially in {@code compact} mode.
+   */
+  public void writeUrlEncodedDataUri(String url, Appendable out) throws IOException {
+    writeDataUri(url, out, false);
+  }
+
+  private void writeDataUri(String url, Appendable out, boolean base64) throws IOException {
+    QrSymbol symbol = encodeSymbol(url);
+    try (DataUriOutputStream uri = new DataUriOutputStream(out, "image/svg+xml", base64)) {
+      new RenderPipeline().add(asSink(uri)).render(symbol);
+    }
+  }
+
+  /**
+   * Starts a document of {@code columns} by {@code rows} cells of {@code cellSize} user units that codes are
+   * streamed into as they are added, with the logo, gradient and finder shapes defined once and referenced
+   * by every code. Uses a copy of this renderer's settings.
+   */
+  public SvgSheet openSheet(Appendable out, int columns, int rows, int cellSize) throws IOException {
+    return new SvgSheet(toBuilder().build(), out, columns, rows, cellSize);
+  }
+
+  void startSheet(StringBuilder svg, int width, int height) {
+    svg
+      .append(PROLOG)
+      .append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"")
+      .append(" width=\"").append(width).append("\" height=\"").append(height)
+      .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">\n");
+    if (!useCustomFinderPatterns)
+      return;
+
+    svg
+      .append("<defs>\n")
+      .append(LOGO_STYLE)
+      .append(LOGO_GRADIENT)
+      .append("<g id=\"qrLogo\">\n")
+      .append(logoBackground(useBackground, backgroundColor)).append('\n')
+      .append(LOGO_PATHS)
+      .append("</g>\n")
+      .append("<g id=\"qrFinder\">\n")
+      .append(finderRenderer.markup(0, 0, compact ? 1 : scale))
+      .append("\n</g>\n")
+      .append("</defs>\n");
+  }
+
+  /**
+   * Encodes the payload and appends it as a nested {@code <svg>} cell whose logo and finder patterns are
+   * {@code <use>} references to the sheet definitions.
+   */
+  void appendSheetCode(StringBuilder svg, String url, int x, int y, int cellSize) {
+    RenderEvent event = RenderEvent.started();
+    encode(url, event);
+    int unit = compact ? 1 : scale;
+    int size = state.qr.getSize();
+    int width = (size + 2 * border) * unit;
+    int start = svg.length();
+
+    svg
+      .append("<svg x=\"").append(x).append("\" y=\"").append(y)
+      .append("\" width=\"").append(cellSize).append("\" height=\"").append(cellSize)
+      .append("\" viewBox=\"0 0 ").append(width).append(' ').append(width).append("\">\n");
+    appendModules(svg);
     if (useCustomFinderPatterns) {
-      svg
-        .append(buildLogo())
-        .append(buildFinderPatterns());
+      if (!state.qr.isMicro())
+        svg
+          .append("<use xlink:href=\"#qrLogo\" transform=\"")
+          .append(logoTransform(unit, border, size))
+          .append("\"/>\n");
+      appendFinderUse(svg, border * unit, border * unit);
+      if (!state.qr.isMicro()) {
+        appendFinderUse(svg, (border + size - 7) * unit, border * unit);
+        appendFinderUse(svg, border * unit, (border + size - 7) * unit);
+      }
     }
+    svg.append("</svg>\n");
+    completeRender(event, svg.length() - start);
+  }
 
-    return svg.toString();
+  private static void appendFinderUse(StringBuilder svg, int x, int y) {
+    svg.append("<use xlink:href=\"#qrFinder\" x=\"").append(x).append("\" y=\"").append(y).append("\"/>\n");
   }
 
-  public String generateSvgFile(String url) {
-    String contents = generateSvg(url);
-    int totalSize = qr.size * scale + (2 * border * scale);
+  void finishSheet(StringBuilder svg) {
+    svg.append("</svg>\n");
+  }
+
+  int startStreaming(String url, StringBuilder svg, RenderEvent event) {
+    encode(url, event);
+    return startStreaming(state.qr, svg);
+  }
+
+  int startStreaming(QrSymbol symbol, StringBuilder svg) {
+    state.qr = symbol;
+    svg.append(compact ? COMPACT_PROLOG : PROLOG).append(buildHeader(headerKey()));
+    appendModulesStart(svg);
+    return state.qr.getSize();
+  }
+
+  void finishStreaming(StringBuilder svg, long bytesBefore, RenderEvent event) {
+    appendModulesEnd(svg);
+    if (useCustomFinderPatterns) {
+      if (!state.qr.isMicro())
+        svg.append(LOGOS.get(logoKey()));
+      svg.append(FINDER_PATTERNS.get(finderKey()));
+    }
+    svg.append(compact ? COMPACT_FOOTER : FOOTER);
+    completeRender(event, bytesBefore + svg.length());
+  }
+
+  private void encode(String url, RenderEvent event) {
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
+    List<QrSegment> segs = QrSegment.makeSegments(url);
+    QrMetrics.stage(QrMetrics.Stage.SEGMENTATION, start, timed);
+
+    EncodingDecision decision = decideEncoding(segs);
+    state.encodingDecision = decision;
+    if (decision.micro())
+      state.qr = MicroQrCode.encodeSegments(segs, decision.errorCorrectionLevel(),
+        decision.version(), decision.version(), -1, false);
+    else
+      state.qr = QrCode.encodeSegments(segs, decision.errorCorrectionLevel(),
+        decision.version(), decision.version(), -1, false);
+    event.encodeNanos = QrMetrics.elapsed(start, timed);
+    event.payloadLength = url.length();
+  }
+
+  private EncodingDecision decideEncoding(List<QrSegment> segs) {
+    if (!(QrCode.MIN_VERSION <= minVersion && minVersion <= maxVersion && maxVersion <= QrCode.MAX_VERSION))
+      throw new IllegalArgumentException("Invalid version range");
+    if (minErrorCorrectionLevel.ordinal() > maxErrorCorrectionLevel.ordinal())
+      throw new IllegalArgumentException("Invalid error correction range");
+    if (recoveryMargin < 0 || recoveryMargin > 1)
+      throw new IllegalArgumentException("Recovery margin out of range");
+
+    QrCode.Ecc[] levels = QrCode.Ecc.values();
+    if (allowMicro && minVersion == QrCode.MIN_VERSION) {
+      EncodingDecision decision = decideMicroEncoding(segs, levels);
+      if (decision != null)
+        return decision;
+    }
 
-    return """
-      <?xml version="1.0" encoding="UTF-8"?>
-      <svg xmlns="http://www.w3.org/2000/svg" width="%s" height="%s" viewBox="0 0 %s %s">
-      %sd
-      </svg>
-      """.formatted(totalSize, totalSize, totalSize, totalSize, contents);
+    for (int version = minVersion; version <= maxVersion; version++) {
+      int dataUsedBits = QrSegment.getTotalBits(segs, version);
+      if (dataUsedBits == -1)
+        continue;
+      BitSet omitted = useCustomFinderPatterns
+        ? OMITTED_CODEWORDS.get(new OmissionKey(version, omitRadius))
+        : new BitSet();
+
+      EncodingDecision decision = null;
+      for (int i = minErrorCorrectionLevel.ordinal(); i <= maxErrorCorrectionLevel.ordinal(); i++) {
+        QrCode.Ecc ecl = levels[i];
+        if (dataUsedBits > QrCode.getNumDataCodewords(version, ecl) * 8)
+          break;
+        int damage = QrCode.getMaxBlockDamage(version, ecl, omitted);
+        int capacity = QrCode.getBlockCorrectionCapacity(version, ecl);
+        if (damage <= (int) (capacity * (1 - recoveryMargin))) {
+          decision = new EncodingDecision(version, ecl, damage, capacity, false);
+          if (!boostErrorCorrection)
+            break;
+        }
+      }
+      if (decision != null)
+        return decision;
+    }
+    throw new DataTooLongException("No version and error correction level in range fits the data and logo");
+  }
+
+  private EncodingDecision decideMicroEncoding(List<QrSegment> segs, QrCode.Ecc[] levels) {
+    int version = MicroQrCode.getSmallestVersion(segs, minErrorCorrectionLevel,
+      MicroQrCode.MIN_VERSION, MicroQrCode.MAX_VERSION);
+    if (version == -1)
+      return null;
+
+    int dataUsedBits = MicroQrCode.getTotalBits(segs, version);
+    QrCode.Ecc ecl = minErrorCorrectionLevel;
+    for (int i = ecl.ordinal() + 1; boostErrorCorrection && i <= maxErrorCorrectionLevel.ordinal(); i++) {
+      int capacity = MicroQrCode.getNumDataBits(version, levels[i]);
+      if (capacity == -1 || dataUsedBits > capacity)
+        break;
+      ecl = levels[i];
+    }
+    return new EncodingDecision(version, ecl, 0, MicroQrCode.getCorrectionCapacity(version, ecl), true);
+  }
+
+  private void renderContents(StringBuilder svg, RenderEvent event) {
+    boolean timed = QrMetrics.timed(event);
+    long start = QrMetrics.now(timed);
+    appendModules(svg);
+
+    if (useCustomFinderPatterns) {
+      if (!state.qr.isMicro())
+        svg.append(LOGOS.get(logoKey()));
+      svg.append(FINDER_PATTERNS.get(finderKey()));
+    }
+    event.renderNanos = QrMetrics.stage(QrMetrics.Stage.SVG_RENDER, start, timed);
+  }
+
+  private int documentOverhead(String header, int size, boolean micro) {
+    return compact
+      ? COMPACT_PROLOG.length() + header.length() + contentsOverhead(size, micro) + COMPACT_FOOTER.length()
+      : PROLOG.length() + header.length() + contentsOverhead(size, micro) + FOOTER.length();
+  }
+
+  /**
+   * Length of everything {@link #renderContents} appends besides the modules.
+   */
+  private int contentsOverhead(int size, boolean micro) {
+    int result = modulesWrapperLength();
+    if (useCustomFinderPatterns) {
+      if (!micro)
+        result += LOGOS.get(logoKey(size)).length();
+      result += FINDER_PATTERNS.get(finderKey(size, micro)).length();
+    }
+    return result;
+  }
+
+  private int measureModules() {
+    return measureModules(state.qr, state.qr.getSize(), state.qr.isMicro(), false);
+  }
+
+  /**
+   * Exact length of the module markup for the symbol, in chars or in UTF-8 bytes, or for a null symbol, the
+   * length if every module that gets drawn at all were dark. Counts whole row words, not single modules.
+   */
+  private int measureModules(QrSymbol symbol, int size, boolean micro, boolean encoded) {
+    ModuleMarkup markup = MODULE_MARKUP.get(markupKey(size));
+    long[] drawn = DRAWN_MODULES.get(drawnKey(size, micro));
+    int rowWords = QrTemplate.getRowWords(size);
+    long[] row = new long[rowWords];
+    if (symbol == null)
+      Arrays.fill(row, -1L);
+    int result = 0;
+    for (int y = 0; y < size; y++) {
+      if (symbol != null)
+        symbol.getRow(y, row);
+      result += markup.measureRow(row, drawn, y * rowWords, y, encoded);
+    }
+    return result;
+  }
+
+  private void completeRender(RenderEvent event, long bytes) {
+    QrMetrics.rendered(bytes);
+    if (event.shouldCommit()) {
+      event.version = state.qr.getVersion();
+      event.errorCorrectionLevel = state.qr.getErrorCorrectionLevel().name();
+      event.mask = state.qr.getMask();
+      event.micro = state.qr.isMicro();
+      event.size = state.qr.getSize();
+      event.outputBytes = bytes;
+      event.commit();
+    }
+  }
+
+  /**
+   * Writes the module markup straight from its pre-encoded pieces into a buffer of the exact UTF-8 length.
+   */
+  private ByteBuffer encodeModules() {
+    StringBuilder wrapper = new StringBuilder();
+    appendModulesStart(wrapper);
+    byte[] start = wrapper.toString().getBytes(StandardCharsets.UTF_8);
+    wrapper.setLength(0);
+    appendModulesEnd(wrapper);
+    byte[] end = wrapper.toString().getBytes(StandardCharsets.UTF_8);
+
+    int size = state.qr.getSize();
+    boolean micro = state.qr.isMicro();
+    ModuleMarkup markup = MODULE_MARKUP.get(markupKey(size));
+    long[] drawn = DRAWN_MODULES.get(drawnKey(size, micro));
+    ByteBuffer buffer = ByteBuffer.allocate(start.length + measureModules(state.qr, size, micro, true) + end.length);
+    buffer.put(start);
+    int rowWords = QrTemplate.getRowWords(size);
+    long[] row = new long[rowWords];
+    for (int y = 0; y < size; y++) {
+      state.qr.getRow(y, row);
+      markup.putRow(buffer, row, drawn, y * rowWords, y);
+    }
+    return buffer.put(end).flip();
+  }
+
+  private void appendModules(StringBuilder svg) {
+    appendModulesStart(svg);
+    int size = state.qr.getSize();
+    ModuleMarkup markup = MODULE_MARKUP.get(markupKey(size));
+    long[] drawn = DRAWN_MODULES.get(drawnKey(size, state.qr.isMicro()));
+    int rowWords = QrTemplate.getRowWords(size);
+    long[] row = new long[rowWords];
+    for (int y = 0; y < size; y++) {
+      state.qr.getRow(y, row);
+      markup.appendRow(svg, row, drawn, y * rowWords, y);
+    }
+    appendModulesEnd(svg);
+  }
+
+  private void appendModulesStart(StringBuilder svg) {
+    if (compact) {
+      if (useBackground)
+        svg.append(BACKGROUND_START).append(backgroundColor).append(BACKGROUND_END);
+      svg.append(GROUP_START).append(foregroundColor).append(GROUP_START_END);
+    } else if (useBackground)
+      svg.append('\t').append(BACKGROUND_START).append(backgroundColor).append(BACKGROUND_END).append('\n');
+  }
+
+  private void appendModulesEnd(StringBuilder svg) {
+    if (compact)
+      svg.append(GROUP_END);
+  }
+
+  /**
+   * Length of what {@link #appendModulesStart} and {@link #appendModulesEnd} append.
+   */
+  private int modulesWrapperLength() {
+    int background = useBackground
+      ? BACKGROUND_START.length() + backgroundColor.length() + BACKGROUND_END.length()
+      : 0;
+    if (compact)
+      return background + GROUP_START.length() + foregroundColor.length() + GROUP_START_END.length()
+        + GROUP_END.length();
+    return useBackground ? background + 2 : 0;
+  }
+
+  void appendModuleRow(StringBuilder svg, int y) {
+    long[] row = new long[QrTemplate.getRowWords(state.qr.getSize())];
+    state.qr.getRow(y, row);
+    appendModuleRow(svg, y, row);
+  }
+
+  void appendModuleRow(StringBuilder svg, int y, long[] row) {
+    int size = state.qr.getSize();
+    long[] drawn = DRAWN_MODULES.get(drawnKey(size, state.qr.isMicro()));
+    MODULE_MARKUP.get(markupKey(size)).appendRow(svg, row, drawn, y * QrTemplate.getRowWords(size), y);
+  }
+
+  private HeaderKey headerKey() {
+    return headerKey(state.qr.getSize());
+  }
+
+  private HeaderKey headerKey(int size) {
+    int units = size + 2 * border;
+    return new HeaderKey(units * scale, compact ? units : units * scale, compact);
+  }
+
+  private MarkupKey markupKey(int size) {
+    return new MarkupKey(size, border, scale, compact ? null : foregroundColor, moduleRenderer, compact);
+  }
+
+  private DrawnKey drawnKey(int size, boolean micro) {
+    return new DrawnKey(size, micro, useCustomFinderPatterns, omitRadius);
+  }
+
+  private LogoKey logoKey() {
+    return logoKey(state.qr.getSize());
+  }
+
+  private LogoKey logoKey(int size) {
+    return new LogoKey(compact ? 1 : scale, border, size, useBackground, backgroundColor, compact);
+  }
+
+  private FinderKey finderKey() {
+    return finderKey(state.qr.getSize(), state.qr.isMicro());
+  }
+
+  private FinderKey finderKey(int size, boolean micro) {
+    return new FinderKey(compact ? 1 : scale, border, size, micro, finderRenderer, compact);
+  }
+
+  private static String buildHeader(HeaderKey key) {
+    String header = HEADER.formatted(key.width(), key.width(), key.viewBox(), key.viewBox());
+    return key.compact() ? header.substring(0, header.length() - 1) : header;
+  }
+
+  private static ModuleMarkup buildModuleMarkup(MarkupKey key) {
+    String markup = key.renderer().markup(key.compact() ? 1 : key.scale(), key.foregroundColor());
+    int x = markup.indexOf(ModuleRenderer.X);
+    int centerX = markup.indexOf(ModuleRenderer.CENTER_X);
+    int xStart = x >= 0 && (centerX < 0 || x < centerX) ? x : centerX;
+    int xEnd = xStart + (xStart == x ? ModuleRenderer.X : ModuleRenderer.CENTER_X).length();
+    int y = markup.indexOf(ModuleRenderer.Y, Math.max(xEnd, 0));
+    int centerY = markup.indexOf(ModuleRenderer.CENTER_Y, Math.max(xEnd, 0));
+    int yStart = y >= 0 && (centerY < 0 || y < centerY) ? y : centerY;
+    if (xStart < 0 || yStart < 0)
+      throw new IllegalArgumentException("Module markup needs an x and then a y placeholder: " + markup);
+    int yEnd = yStart + (yStart == y ? ModuleRenderer.Y : ModuleRenderer.CENTER_Y).length();
+
+    return new ModuleMarkup(
+      (key.compact() ? "" : "\t") + markup.substring(0, xStart),
+      coordinates(key, xStart != x),
+      markup.substring(xEnd, yStart),
+      coordinates(key, yStart != y),
+      markup.substring(yEnd) + (key.compact() ? "" : "\n"));
+  }
+
+  private static String[] coordinates(MarkupKey key, boolean center) {
+    String[] result = new String[key.size()];
+    for (int i = 0; i < result.length; i++) {
+      int offset = i + key.border();
+      if (key.compact())
+        result[i] = center ? offset + ".5" : String.valueOf(offset);
+      else
+        result[i] = center ? String.valueOf(offset * key.scale() + key.scale() / 2.0)
+          : String.valueOf(offset * key.scale());
+    }
+    return result;
+  }
+
+  private static String compactMarkup(String markup) {
+    return markup
+      .replaceAll(">\\s+<", "><")
+      .replaceAll("\\s*\n\\s*", " ")
+      .replace(" />", "/>");
   }
 
   // TODO: allow logo customization
-  private String buildLogo() {
+  private static String buildLogo(LogoKey key) {
+    if (key.compact())
+      return compactMarkup(buildLogo(new LogoKey(key.scale(), key.border(), key.size(), key.useBackground(),
+        key.backgroundColor(), false)));
+
+    return LOGO_STYLE
+      + "<g transform=\"" + logoTransform(key.scale(), key.border(), key.size()) + "\">\n"
+      + logoBackground(key.useBackground(), key.backgroundColor()) + "\n"
+      + LOGO_GRADIENT
+      + LOGO_PATHS
+      + "</g>";
+  }
+
+  private static String logoTransform(int scale, int border, int size) {
     double a = (0.01 * scale);
     double b = 0;
     double c = 0;
     double d = (0.01 * scale);
-    double e = ((qr.size - 6) / 2d * scale) + border * scale;
-    double f = ((qr.size - 8) / 2d * scale) + border * scale;
+    double e = ((size - 6) / 2d * scale) + border * scale;
+    double f = ((size - 8) / 2d * scale) + border * scale;
+    return "matrix(" + a + "," + b + "," + c + "," + d + "," + e + "," + f + ")";
+  }
 
-    String background = (useBackground)
+  private static String logoBackground(boolean useBackground, String backgroundColor) {
+    return useBackground
       ? "<rect x=\"50\" y=\"170\" fill=\"" + backgroundColor + "\" width=\"500\" height=\"500\" />"
       : "";
+  }
+
+  private static String buildFinderPatterns(FinderKey key) {
+    if (key.compact())
+      return compactMarkup(buildFinderPatterns(new FinderKey(key.scale(), key.border(), key.size(), key.micro(),
+        key.renderer(), false)));
+
+    int scale = key.scale();
+    int size = key.size();
+    int actualBorder = key.border() * scale;
+    FinderRenderer renderer = key.renderer();
+
+    // Micro QR symbols have no logo, which is otherwise what brings the style and gradient the finder uses.
+    if (key.micro())
+      return LOGO_STYLE + LOGO_GRADIENT + renderer.markup(actualBorder, actualBorder, scale);
+
+    return renderer.markup(actualBorder, actualBorder, scale) + "\n\n"
+      + renderer.markup(actualBorder + (size - 7) * scale, actualBorder, scale) + "\n\n"
+      + renderer.markup(actualBorder, actualBorder + (size - 7) * scale, scale);
+  }
+
+  /**
+   * Modules drawn when dark, in the row layout of {@link QrSymbol#getRow(int, long[])}: all but those under
+   * the custom finder patterns and the logo.
+   */
+  private static long[] buildDrawnModules(DrawnKey key) {
+    int size = key.size();
+    int rowWords = QrTemplate.getRowWords(size);
+    long[] result = new long[size * rowWords];
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        if (!isFinderPattern(key, x, y) && !isInOmissionZone(key, x, y))
+          result[y * rowWords + (x >>> 6)] |= 1L << x;
+      }
+    }
+    return result;
+  }
 
-    return """
-      <style type="text/css">
-        .logoMarker{fill:url(#logoGradientPattern);}
-        .logoGray{fill:#7D8082;}
-      </style>
-      <g transform="matrix(%s,%s,%s,%s,%s,%s)">
-      %s
-      <linearGradient id="logoGradientPattern">
-        <stop offset="0" style="stop-color:#EF3F40" />
-        <stop offset="100%%" style="stop-color:#483165" />
-      </linearGradient>
-      <path class="logoMarker" d="M261.5,477.4l13.7,10.1l13.9-9.8C421.6,384.1,412.2,299,402,266.8c-16.1-51-67-85.3-126.5-85.4l0,0
-      c-57.7,0.1-105.6,32.2-121.9,82C131.3,330.9,171.6,410.9,261.5,477.4z M198.2,278.1c9.9-30.1,40.2-49.6,77.2-49.6
-      c38.9,0.1,71.7,21.2,81.7,52.5c13.8,43.6-16.5,98.2-81.3,148C212.5,378,183.7,322.3,198.2,278.1z" />
-      <path class="logoGray" d="M237.1 293.6a38.3 37.2 0 1 0 76.6 0 38.3 37.2 0 1 0-76.6 0M431.6 569.7l3.6-5.5s17-19.9
-      29.5-44.6c-14.2-12.3-21.6-18.7-37.7-32.3-15.9 29.7-31.9 47.2-31.9 47.2-.3.5-1.1.6-1.5.2l-64-58.7c-9.8 8.2-20.5 16.4-32.2 24.6l-9.5 6.7
-      72.8 66.3c.5.4.5 1.2 0 1.6-27.1 23.2-57.3 35.1-90.4 35.1-27.4 0-50.5-7.3-68.2-21.9-17.7-14.6-26.8-32.3-26.8-53.6 0-27.6
-      13.2-49.6 39.1-66-12.8-11.7-24.2-23.7-34.5-35.9-36.8 22.9-59.4 58.9-59.4 102.5 0 37.1 13.4 67 40.8 90.1s63.9 34.7 108.3
-      34.7c49.8 0 92.9-17.6 128.8-52.1.1-.1.4-.1.5 0l47.5 43.3c.2.2.4.3.7.3h71.3c.9 0 1.3-1.1.7-1.7l-87.5-80.3z"/>
-      </g>""".formatted(a, b, c, d, e, f, background);
-  }
-
-  private String buildFinderPatterns() {
-    int actualBorder = border * scale;
-
-    return """
-      <rect class="logoMarker" x="%d" y="%d" rx="%d" width="%d" height="%d" />
-      <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />
-      <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />
-
-      <rect class="logoMarker" x="%d" y="%d" rx="%d" width="%d" height="%d" />
-      <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />
-      <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />
-
-      <rect class="logoMarker" x="%d" y="%d" rx="%d" width="%d" height="%d" />
-      <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />
-      <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />""".formatted(
-      actualBorder, actualBorder, scale, 7 * scale, 7 * scale,
-      actualBorder + scale, actualBorder + scale, scale, "#FFFFFF", 5 * scale, 5 * scale,
-      actualBorder + 2 * scale, actualBorder + 2 * scale, scale, "#7D8082", 3 * scale, 3 * scale,
-      actualBorder + (qr.size - 7) * scale, actualBorder, scale, 7 * scale, 7 * scale,
-      actualBorder + (qr.size - 6) * scale, actualBorder + scale, scale, "#FFFFFF", 5 * scale, 5 * scale,
-      actualBorder + (qr.size - 5) * scale, actualBorder + 2 * scale, scale, "#7D8082", 3 * scale, 3 * scale,
-      actualBorder, actualBorder + (qr.size - 7) * scale, scale, 7 * scale, 7 * scale,
-      actualBorder + scale, actualBorder + (qr.size - 6) * scale, scale, "#FFFFFF", 5 * scale, 5 * scale,
-      actualBorder + 2 * scale, actualBorder + (qr.size - 5) * scale, scale, "#7D8082", 3 * scale, 3 * scale
-    );
-  }
-
-  private boolean isFinderPattern(int x, int y, int size) {
-    if (!useCustomFinderPatterns) return false;
+  private static boolean isFinderPattern(DrawnKey key, int x, int y) {
+    if (!key.customFinderPatterns()) return false;
+    int size = key.size();
+    if (key.micro()) return x <= 6 && y <= 6;
     return (x <= 6 && y <= 6) || (x >= size - 7 && y <= 6) || (x <= 6 && y >= size - 7);
   }
 
-  private boolean isInOmissionZone(int x, int y, double centerX, double centerY, int radius) {
-    if (!useCustomFinderPatterns) return false;
-    double distance = Math.sqrt(Math.pow(x - centerX, 2) + Math.pow(y - centerY, 2));
-    return distance <= radius;
+  private static boolean isInOmissionZone(DrawnKey key, int x, int y) {
+    if (!key.customFinderPatterns() || key.micro()) return false;
+    int dx = 2 * x - (key.size() - 1);
+    int dy = 2 * y - (key.size() - 1);
+    return dx * dx + dy * dy <= 4 * key.omitRadius() * key.omitRadius();
+  }
+
+  private static ByteBuffer sharedBuffer(String contents) {
+    byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+  }
+
+  private record HeaderKey(int width, int viewBox, boolean compact) {
+  }
+
+  private record LogoKey(int scale, int border, int size, boolean useBackground, String backgroundColor,
+                         boolean compact) {
+  }
+
+  private record FinderKey(int scale, int border, int size, boolean micro, FinderRenderer renderer,
+                           boolean compact) {
+  }
+
+  private record OmissionKey(int version, int radius) {
+  }
+
+  private record DrawnKey(int size, boolean micro, boolean customFinderPatterns, int omitRadius) {
+  }
+
+  private record MarkupKey(int size, int border, int scale, String foregroundColor, ModuleRenderer renderer,
+                           boolean compact) {
+  }
+
+  /**
+   * Pre-formatted pieces of one module, as text and as UTF-8; the coordinates of column or row {@code i} are
+   * {@code xCoordinates[i]} and {@code yCoordinates[i]}.
+   */
+  private static final class ModuleMarkup {
+
+    private final String prefix;
+    private final String[] xCoordinates;
+    private final String separator;
+    private final String[] yCoordinates;
+    private final String suffix;
+    private final byte[] prefixBytes;
+    private final byte[][] xBytes;
+    private final byte[] separatorBytes;
+    private final byte[][] yBytes;
+    private final byte[] suffixBytes;
+    private final int rowWords;
+    private final int[] groupLengths;
+    private final long[][] groupColumns;
+
+    ModuleMarkup(String prefix, String[] xCoordinates, String separator, String[] yCoordinates, String suffix) {
+      this.prefix = prefix;
+      this.xCoordinates = xCoordinates;
+      this.separator = separator;
+      this.yCoordinates = yCoordinates;
+      this.suffix = suffix;
+      prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+      xBytes = encode(xCoordinates);
+      separatorBytes = separator.getBytes(StandardCharsets.UTF_8);
+      yBytes = encode(yCoordinates);
+      suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+
+      // Columns grouped by the length of their x coordinate, as row masks
+      rowWords = QrTemplate.getRowWords(xCoordinates.length);
+      int maxLength = 0;
+      for (String coordinate : xCoordinates)
+        maxLength = Math.max(maxLength, coordinate.length());
+      long[][] byLength = new long[maxLength + 1][];
+      int groups = 0;
+      for (int x = 0; x < xCoordinates.length; x++) {
+        int length = xCoordinates[x].length();
+        if (byLength[length] == null) {
+          byLength[length] = new long[rowWords];
+          groups++;
+        }
+        byLength[length][x >>> 6] |= 1L << x;
+      }
+      groupLengths = new int[groups];
+      groupColumns = new long[groups][];
+      for (int length = 0, i = 0; length <= maxLength; length++) {
+        if (byLength[length] != null) {
+          groupLengths[i] = length;
+          groupColumns[i++] = byLength[length];
+        }
+      }
+    }
+
+    private static byte[][] encode(String[] coordinates) {
+      byte[][] result = new byte[coordinates.length][];
+      for (int i = 0; i < result.length; i++)
+        result[i] = coordinates[i].getBytes(StandardCharsets.US_ASCII);
+      return result;
+    }
+
+    void append(StringBuilder svg, int x, int y) {
+      svg.append(prefix).append(xCoordinates[x]).append(separator).append(yCoordinates[y]).append(suffix);
+    }
+
+    void put(ByteBuffer buffer, int x, int y) {
+      buffer.put(prefixBytes).put(xBytes[x]).put(separatorBytes).put(yBytes[y]).put(suffixBytes);
+    }
+
+    void appendRow(StringBuilder svg, long[] row, long[] drawn, int drawnOffset, int y) {
+      for (int i = 0; i < rowWords; i++) {
+        for (long bits = row[i] & drawn[drawnOffset + i]; bits != 0; bits &= bits - 1)
+          append(svg, i << 6 | Long.numberOfTrailingZeros(bits), y);
+      }
+    }
+
+    void putRow(ByteBuffer buffer, long[] row, long[] drawn, int drawnOffset, int y) {
+      for (int i = 0; i < rowWords; i++) {
+        for (long bits = row[i] & drawn[drawnOffset + i]; bits != 0; bits &= bits - 1)
+          put(buffer, i << 6 | Long.numberOfTrailingZeros(bits), y);
+      }
+    }
+
+    /**
+     * Length in chars or UTF-8 bytes of the modules set in both {@code row} and {@code drawn}. Coordinates
+     * are ASCII, so only the fixed pieces differ between the two.
+     */
+    int measureRow(long[] row, long[] drawn, int drawnOffset, int y, boolean encoded) {
+      int count = 0;
+      int coordinates = 0;
+      for (int group = 0; group < groupColumns.length; group++) {
+        long[] columns = groupColumns[group];
+        int groupCount = 0;
+        for (int i = 0; i < rowWords; i++)
+          groupCount += Long.bitCount(row[i] & drawn[drawnOffset + i] & columns[i]);
+        count += groupCount;
+        coordinates += groupCount * groupLengths[group];
+      }
+      int fixed = encoded
+        ? prefixBytes.length + separatorBytes.length + suffixBytes.length
+        : prefix.length() + separator.length() + suffix.length();
+      return count * (fixed + yCoordinates[y].length()) + coordinates;
+    }
+  }
+
+  /**
+   * Outcome of {@link #plan(String)}: the encoding that would be chosen, the width in modules, the payload
+   * against the capacity in bits, and the {@link #generateSvgFile(String)} length in chars, estimated with
+   * half of the drawable modules dark and bounded with all of them dark. Chars equal bytes for ASCII colors.
+   */
+  public record RenderPlan(EncodingDecision decision, int size, int dataBits, int capacityBits,
+                           long estimatedSvgLength, long maxSvgLength) {
+  }
+
+  /**
+   * Version and error correction level picked for the last rendered code, with the worst number of
+   * codewords hidden under the logo in any block against what that block can correct. Micro versions
+   * 1 to 4 stand for M1 to M4.
+   */
+  public record EncodingDecision(int version, QrCode.Ecc errorCorrectionLevel, int damagedCodewords,
+                                 int correctableCodewords, boolean micro) {
+  }
+
+  private static final class RenderState {
+    QrSymbol qr;
+    EncodingDecision encodingDecision;
   }
 }
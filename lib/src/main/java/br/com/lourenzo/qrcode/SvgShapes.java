@@ -0,0 +1,128 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+/**
+ * Built-in {@link ModuleRenderer} and {@link FinderRenderer} shapes. They are records so that renderers
+ * configured alike share cached markup.
+ */
+final class SvgShapes {
+
+  private static final String FINDER_FILL = "#FFFFFF";
+  private static final String FINDER_CORE = "#7D8082";
+
+  private SvgShapes() {
+  }
+
+  record Circle() implements ModuleRenderer {
+
+    @Override
+    public String markup(int unit, String fill) {
+      return "<circle cx=\"" + CENTER_X + "\" cy=\"" + CENTER_Y + "\" r=\""
+        + (fill == null ? ".45" : String.valueOf(unit / 2.2)) + "\"" + fill(fill) + "/>";
+    }
+  }
+
+  record Dot() implements ModuleRenderer {
+
+    @Override
+    public String markup(int unit, String fill) {
+      return "<circle cx=\"" + CENTER_X + "\" cy=\"" + CENTER_Y + "\" r=\"" + number(unit * 3 / 10d) + "\""
+        + fill(fill) + "/>";
+    }
+  }
+
+  record Square(double radius) implements ModuleRenderer {
+
+    @Override
+    public String markup(int unit, String fill) {
+      return "<rect x=\"" + X + "\" y=\"" + Y + "\" width=\"" + unit + "\" height=\"" + unit + "\""
+        + (radius > 0 ? " rx=\"" + number(unit * radius) + "\"" : "") + fill(fill) + "/>";
+    }
+  }
+
+  record Diamond() implements ModuleRenderer {
+
+    @Override
+    public String markup(int unit, String fill) {
+      String h = number(unit / 2d);
+      return "<path d=\"M" + CENTER_X + " " + Y + "l" + h + " " + h + " -" + h + " " + h + " -" + h + " -" + h
+        + "z\"" + fill(fill) + "/>";
+    }
+  }
+
+  record CustomPath(String pathData) implements ModuleRenderer {
+
+    @Override
+    public String markup(int unit, String fill) {
+      return "<path transform=\"translate(" + X + " " + Y + ")" + (unit == 1 ? "" : " scale(" + unit + ")")
+        + "\" d=\"" + pathData + "\"" + fill(fill) + "/>";
+    }
+  }
+
+  record RoundedFinder() implements FinderRenderer {
+
+    @Override
+    public String markup(int x, int y, int unit) {
+      return """
+        <rect class="logoMarker" x="%d" y="%d" rx="%d" width="%d" height="%d" />
+        <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />
+        <rect x="%d" y="%d" rx="%d" fill="%s" width="%d" height="%d" />""".formatted(
+        x, y, unit, 7 * unit, 7 * unit,
+        x + unit, y + unit, unit, FINDER_FILL, 5 * unit, 5 * unit,
+        x + 2 * unit, y + 2 * unit, unit, FINDER_CORE, 3 * unit, 3 * unit
+      );
+    }
+  }
+
+  record SquareFinder() implements FinderRenderer {
+
+    @Override
+    public String markup(int x, int y, int unit) {
+      return """
+        <rect class="logoMarker" x="%d" y="%d" width="%d" height="%d" />
+        <rect x="%d" y="%d" fill="%s" width="%d" height="%d" />
+        <rect x="%d" y="%d" fill="%s" width="%d" height="%d" />""".formatted(
+        x, y, 7 * unit, 7 * unit,
+        x + unit, y + unit, FINDER_FILL, 5 * unit, 5 * unit,
+        x + 2 * unit, y + 2 * unit, FINDER_CORE, 3 * unit, 3 * unit
+      );
+    }
+  }
+
+  record CircleFinder() implements FinderRenderer {
+
+    @Override
+    public String markup(int x, int y, int unit) {
+      String cx = number(x + 3.5 * unit);
+      String cy = number(y + 3.5 * unit);
+      return """
+        <circle class="logoMarker" cx="%s" cy="%s" r="%s" />
+        <circle cx="%s" cy="%s" fill="%s" r="%s" />
+        <circle cx="%s" cy="%s" fill="%s" r="%s" />""".formatted(
+        cx, cy, number(3.5 * unit),
+        cx, cy, FINDER_FILL, number(2.5 * unit),
+        cx, cy, FINDER_CORE, number(1.5 * unit)
+      );
+    }
+  }
+
+  private static String fill(String fill) {
+    return fill == null ? "" : " fill=\"" + fill + "\"";
+  }
+
+  private static String number(double value) {
+    return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A multi-code SVG document filled row by row, left to right. Each {@link #add(String)} renders one code
+ * and appends it to the target straight away, so memory stays bounded by a single code however many the
+ * sheet holds. Closing the sheet ends the document and flushes the target but does not close it.
+ */
+public final class SvgSheet implements Closeable {
+
+  private final SvgQrCode renderer;
+  private final Appendable out;
+  private final int columns;
+  private final int capacity;
+  private final int cellSize;
+  private final StringBuilder buffer = new StringBuilder();
+
+  private int count;
+  private boolean closed;
+
+  SvgSheet(SvgQrCode renderer, Appendable out, int columns, int rows, int cellSize) throws IOException {
+    if (columns < 1 || rows < 1 || cellSize < 1 || (long) columns * rows > Integer.MAX_VALUE
+      || (long) Math.max(columns, rows) * cellSize > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Invalid sheet dimensions");
+    this.renderer = renderer;
+    this.out = Objects.requireNonNull(out);
+    this.columns = columns;
+    this.capacity = columns * rows;
+    this.cellSize = cellSize;
+
+    renderer.startSheet(buffer, columns * cellSize, rows * cellSize);
+    drain();
+  }
+
+  /**
+   * Places the next code. A payload that does not fit throws before anything is written, leaving the
+   * cell free for the next one.
+   */
+  public void add(String url) throws IOException {
+    if (closed)
+      throw new IllegalStateException("Sheet is closed");
+    if (count == capacity)
+      throw new IllegalStateException("Sheet is full");
+    renderer.appendSheetCode(buffer, url, count % columns * cellSize, count / columns * cellSize, cellSize);
+    count++;
+    drain();
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed)
+      return;
+    closed = true;
+    renderer.finishSheet(buffer);
+    drain();
+    if (out instanceof Flushable flushable)
+      flushable.flush();
+  }
+
+  private void drain() throws IOException {
+    out.append(buffer);
+    buffer.setLength(0);
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+final class SvgSink implements RenderSink {
+
+  private final SvgQrCode renderer;
+  private final OutputStream out;
+  private final StringBuilder svg = new StringBuilder();
+
+  private Writer writer;
+  private RenderEvent event;
+  private long bytesWritten;
+
+  SvgSink(SvgQrCode renderer, OutputStream out) {
+    this.renderer = renderer;
+    this.out = Objects.requireNonNull(out);
+  }
+
+  @Override
+  public void begin(QrSymbol symbol) throws IOException {
+    event = RenderEvent.started();
+    writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    bytesWritten = 0;
+    renderer.startStreaming(symbol, svg);
+    flushChunk();
+  }
+
+  @Override
+  public void row(int y, long[] modules) throws IOException {
+    renderer.appendModuleRow(svg, y, modules);
+    flushChunk();
+  }
+
+  @Override
+  public void end() throws IOException {
+    renderer.finishStreaming(svg, bytesWritten, event);
+    flushChunk();
+    writer.flush();
+    writer = null;
+  }
+
+  private void flushChunk() throws IOException {
+    writer.append(svg);
+    bytesWritten += svg.length();
+    svg.setLength(0);
+  }
+
+}
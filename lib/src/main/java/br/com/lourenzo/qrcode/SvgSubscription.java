@@ -0,0 +1,143 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class SvgSubscription implements Flow.Subscription, Runnable {
+
+  private static final int CHUNK_CHARS = 8192;
+
+  private final SvgQrCode renderer;
+  private final String url;
+  private final Executor executor;
+  private final Flow.Subscriber<? super ByteBuffer> subscriber;
+  private final RenderEvent event = RenderEvent.started();
+
+  private final AtomicLong demand = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+  private volatile boolean cancelled;
+  private volatile Throwable invalidRequest;
+
+  private int size = -1;
+  private int nextRow;
+  private long bytesEmitted;
+  private boolean done;
+
+  SvgSubscription(SvgQrCode renderer, String url, Executor executor, Flow.Subscriber<? super ByteBuffer> subscriber) {
+    this.renderer = renderer;
+    this.url = url;
+    this.executor = executor;
+    this.subscriber = Objects.requireNonNull(subscriber);
+  }
+
+  void start() {
+    subscriber.onSubscribe(this);
+  }
+
+  @Override
+  public void request(long n) {
+    if (n <= 0)
+      invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+    else
+      demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+    schedule();
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+  }
+
+  private void schedule() {
+    if (wip.getAndIncrement() == 0) {
+      try {
+        executor.execute(this);
+      } catch (RuntimeException e) {
+        done = true;
+        subscriber.onError(e);
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    int missed = 1;
+    do {
+      drain();
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void drain() {
+    while (!done) {
+      if (cancelled) {
+        done = true;
+        return;
+      }
+      if (invalidRequest != null) {
+        done = true;
+        subscriber.onError(invalidRequest);
+        return;
+      }
+      if (demand.get() == 0)
+        return;
+
+      ByteBuffer chunk;
+      try {
+        chunk = nextChunk();
+      } catch (RuntimeException e) {
+        done = true;
+        subscriber.onError(e);
+        return;
+      }
+      demand.decrementAndGet();
+      try {
+        subscriber.onNext(chunk);
+      } catch (Throwable e) {
+        // Reactive Streams 2.13: a throwing subscriber cancels its subscription. Returning normally also
+        // keeps wip consistent, which an escaping exception would leave stuck.
+        cancelled = true;
+        done = true;
+        subscriber.onError(e);
+        return;
+      }
+      if (nextRow > size) {
+        done = true;
+        subscriber.onComplete();
+      }
+    }
+  }
+
+  private ByteBuffer nextChunk() {
+    StringBuilder svg = new StringBuilder(CHUNK_CHARS + 1024);
+    if (size == -1)
+      size = renderer.startStreaming(url, svg, event);
+    while (nextRow < size && svg.length() < CHUNK_CHARS)
+      renderer.appendModuleRow(svg, nextRow++);
+    if (nextRow == size && svg.length() < CHUNK_CHARS) {
+      renderer.finishStreaming(svg, bytesEmitted, event);
+      nextRow++;
+    }
+    byte[] bytes = svg.toString().getBytes(StandardCharsets.UTF_8);
+    bytesEmitted += bytes.length;
+    return ByteBuffer.wrap(bytes);
+  }
+
+}
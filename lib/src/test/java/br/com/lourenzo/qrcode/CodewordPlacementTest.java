@@ -0,0 +1,101 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the run-based placement with the module-by-module zigzag walk of the standard.
+ */
+public class CodewordPlacementTest {
+
+  @Test
+  public void runsPlaceBitsLikeTheZigzagWalk() {
+    Random random = new Random(43);
+    for (int version = QrCode.MIN_VERSION; version <= QrCode.MAX_VERSION; version++) {
+      QrTemplate template = QrTemplate.MEMOIZER.get(version);
+      int size = version * 4 + 17;
+      byte[] codewords = new byte[template.placement.bitCount / 8];
+      for (int i = 0; i < 3; i++) {
+        random.nextBytes(codewords);
+        long[] modules = new long[template.dataModules.length];
+        template.placement.draw(codewords, modules);
+        assertArrayEquals("version " + version, zigzag(template, size, codewords), modules);
+      }
+    }
+  }
+
+  @Test
+  public void codewordsWithinRadiusMatchTheZigzagWalk() {
+    for (int version : new int[] {1, 5, 10, 25, 40}) {
+      QrTemplate template = QrTemplate.MEMOIZER.get(version);
+      int size = version * 4 + 17;
+      for (int radius : new int[] {0, 3, size / 4, size}) {
+        BitSet expected = new BitSet();
+        double center = (size - 1) / 2d;
+        int[] bit = {0};
+        walk(template, size, (x, y) -> {
+          if ((x - center) * (x - center) + (y - center) * (y - center) <= (double) radius * radius)
+            expected.set(bit[0] >>> 3);
+          bit[0]++;
+        });
+        assertEquals("version " + version + " radius " + radius, expected, template.getCodewordsWithinRadius(radius));
+      }
+    }
+  }
+
+  private static long[] zigzag(QrTemplate template, int size, byte[] codewords) {
+    long[] modules = new long[template.dataModules.length];
+    int rowWords = QrTemplate.getRowWords(size);
+    int[] bit = {0};
+    walk(template, size, (x, y) -> {
+      int i = bit[0]++;
+      if ((codewords[i >>> 3] >>> (7 - (i & 7)) & 1) != 0)
+        modules[y * rowWords + (x >>> 6)] |= 1L << x;
+    });
+    return modules;
+  }
+
+  private static void walk(QrTemplate template, int size, ModuleVisitor visitor) {
+    int rowWords = QrTemplate.getRowWords(size);
+    int placed = 0;
+    for (int right = size - 1; right >= 1; right -= 2) {
+      if (right == 6)
+        right = 5;
+      for (int vert = 0; vert < size; vert++) {
+        for (int j = 0; j < 2; j++) {
+          int x = right - j;
+          boolean upward = ((right + 1) & 2) == 0;
+          int y = upward ? size - 1 - vert : vert;
+          boolean data = (template.dataModules[y * rowWords + (x >>> 6)] >>> x & 1) != 0;
+          if (data && placed < template.placement.bitCount) {
+            visitor.visit(x, y);
+            placed++;
+          }
+        }
+      }
+    }
+    assertEquals(template.placement.bitCount, placed);
+  }
+
+  private interface ModuleVisitor {
+    void visit(int x, int y);
+  }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Reads M1 to M4 symbols back with a small decoder written from the tables of ISO/IEC 18004: finder, timing,
+ * format information, mask, codeword placement, Reed-Solomon syndromes and the segment bit stream.
+ */
+public class MicroQrCodeTest {
+
+  private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+  /**
+   * Data bits and error correction codewords of M1, M2-L, M2-M, M3-L, M3-M, M4-L, M4-M and M4-Q, by symbol
+   * number.
+   */
+  private static final int[] DATA_BITS = {20, 40, 32, 84, 68, 128, 112, 80};
+  private static final int[] ECC_CODEWORDS = {2, 5, 6, 6, 8, 8, 10, 14};
+  private static final int[] SYMBOL_VERSION = {1, 2, 2, 3, 3, 4, 4, 4};
+  private static final QrCode.Ecc[] SYMBOL_ECC = {
+    QrCode.Ecc.LOW, QrCode.Ecc.LOW, QrCode.Ecc.MEDIUM, QrCode.Ecc.LOW, QrCode.Ecc.MEDIUM,
+    QrCode.Ecc.LOW, QrCode.Ecc.MEDIUM, QrCode.Ecc.QUARTILE
+  };
+
+  @Test
+  public void symbolsDecodeToTheirPayload() {
+    String[][] cases = {
+      {"1", "LOW", "1"}, {"12345", "LOW", "1"},
+      {"0123456789", "LOW", "2"}, {"01234567", "MEDIUM", "2"}, {"AC-42", "LOW", "2"}, {"ABC", "MEDIUM", "2"},
+      {"https", "LOW", "3"}, {"HTTPS://X", "MEDIUM", "3"}, {"31415926535897932", "LOW", "3"},
+      {"https://a.bc/de", "LOW", "4"}, {"HTTPS://EXAMPLE.COM", "LOW", "4"}, {"0123456789012345678", "QUARTILE", "4"},
+      {"a\u00e7\u00e3o", "MEDIUM", "3"}, {"\u00e7\u00e3o-\u00e7\u00e3o", "LOW", "4"}
+    };
+    for (String[] c : cases) {
+      MicroQrCode symbol = MicroQrCode.encodeSegments(QrSegment.makeSegments(c[0]), QrCode.Ecc.valueOf(c[1]),
+        MicroQrCode.MIN_VERSION, MicroQrCode.MAX_VERSION, -1, false);
+      assertEquals(c[0], Integer.parseInt(c[2]), symbol.version);
+      assertEquals(c[0], c[0], decode(symbol));
+    }
+  }
+
+  @Test
+  public void everyMaskDecodes() {
+    for (int mask = 0; mask < 4; mask++) {
+      for (int version = 1; version <= 4; version++) {
+        MicroQrCode symbol = MicroQrCode.encodeSegments(QrSegment.makeSegments("123"), QrCode.Ecc.LOW,
+          version, version, mask, false);
+        assertEquals(mask, symbol.mask);
+        assertEquals("123", decode(symbol));
+      }
+    }
+  }
+
+  @Test
+  public void chosenMaskHasTheBestEdgeScore() {
+    for (String text : List.of("1", "0123456789", "HELLO", "https://a.bc/de")) {
+      MicroQrCode chosen = MicroQrCode.encodeText(text, QrCode.Ecc.LOW);
+      int best = -1;
+      int bestScore = Integer.MIN_VALUE;
+      for (int mask = 0; mask < 4; mask++) {
+        MicroQrCode masked = MicroQrCode.encodeSegments(QrSegment.makeSegments(text), chosen.errorCorrectionLevel,
+          chosen.version, chosen.version, mask, false);
+        int right = 0;
+        int bottom = 0;
+        for (int i = 1; i < masked.size; i++) {
+          right += masked.getModule(masked.size - 1, i) ? 1 : 0;
+          bottom += masked.getModule(i, masked.size - 1) ? 1 : 0;
+        }
+        int score = Math.min(right, bottom) * 16 + Math.max(right, bottom);
+        if (score > bestScore) {
+          best = mask;
+          bestScore = score;
+        }
+      }
+      assertEquals(text, best, chosen.mask);
+    }
+  }
+
+  @Test
+  public void capacitiesMatchTheStandard() {
+    assertCapacity("1".repeat(5), "1".repeat(6), QrCode.Ecc.LOW, 1);
+    assertCapacity("1".repeat(10), "1".repeat(11), QrCode.Ecc.LOW, 2);
+    assertCapacity("A".repeat(6), "A".repeat(7), QrCode.Ecc.LOW, 2);
+    assertCapacity("1".repeat(8), "1".repeat(9), QrCode.Ecc.MEDIUM, 2);
+    assertCapacity("a".repeat(9), "a".repeat(10), QrCode.Ecc.LOW, 3);
+    assertCapacity("A".repeat(11), "A".repeat(12), QrCode.Ecc.MEDIUM, 3);
+    assertCapacity("1".repeat(35), "1".repeat(36), QrCode.Ecc.LOW, 4);
+    assertCapacity("A".repeat(21), "A".repeat(22), QrCode.Ecc.LOW, 4);
+    assertCapacity("a".repeat(15), "a".repeat(16), QrCode.Ecc.LOW, 4);
+    assertCapacity("1".repeat(21), "1".repeat(22), QrCode.Ecc.QUARTILE, 4);
+    assertCapacity("a".repeat(9), "a".repeat(10), QrCode.Ecc.QUARTILE, 4);
+  }
+
+  private static void assertCapacity(String fits, String tooLong, QrCode.Ecc ecc, int version) {
+    MicroQrCode symbol = MicroQrCode.encodeSegments(QrSegment.makeSegments(fits), ecc, version, version, -1, false);
+    assertEquals(fits, decode(symbol));
+    assertThrows(DataTooLongException.class,
+      () -> MicroQrCode.encodeSegments(QrSegment.makeSegments(tooLong), ecc, version, version, -1, false));
+  }
+
+  /**
+   * Checks the structure of a symbol and returns the text of its single segment.
+   */
+  private static String decode(MicroQrCode symbol) {
+    int size = symbol.size;
+    assertEquals(symbol.version * 2 + 9, size);
+
+    for (int y = 0; y < 8; y++) {
+      for (int x = 0; x < 8; x++) {
+        int dist = Math.max(Math.abs(x - 3), Math.abs(y - 3));
+        assertEquals("finder (" + x + ", " + y + ")", dist != 2 && dist <= 3, symbol.getModule(x, y));
+      }
+    }
+    for (int i = 8; i < size; i++) {
+      assertEquals("timing " + i, i % 2 == 0, symbol.getModule(i, 0));
+      assertEquals("timing " + i, i % 2 == 0, symbol.getModule(0, i));
+    }
+
+    int format = 0;
+    for (int i = 0; i < 8; i++)
+      format |= (symbol.getModule(8, i + 1) ? 1 : 0) << i;
+    for (int i = 0; i < 7; i++)
+      format |= (symbol.getModule(i + 1, 8) ? 1 : 0) << (14 - i);
+    format ^= 0x4445;
+    int check = format >>> 10;
+    for (int i = 0; i < 10; i++)
+      check = (check << 1) ^ ((check >>> 9) * 0x537);
+    assertEquals("format BCH", format, (format >>> 10) << 10 | check);
+    int symbolNumber = format >>> 12;
+    int mask = format >>> 10 & 3;
+    assertEquals(SYMBOL_VERSION[symbolNumber], symbol.version);
+    assertEquals(SYMBOL_ECC[symbolNumber], symbol.errorCorrectionLevel);
+    assertEquals(mask, symbol.mask);
+
+    int dataBits = DATA_BITS[symbolNumber];
+    int eccCodewords = ECC_CODEWORDS[symbolNumber];
+    int totalBits = dataBits + eccCodewords * 8;
+    boolean[] bits = new boolean[totalBits];
+    int n = 0;
+    for (int right = size - 1; right >= 1; right -= 2) {
+      boolean upward = ((size - 1 - right) & 2) == 0;
+      for (int vert = 0; vert < size; vert++) {
+        int y = upward ? size - 1 - vert : vert;
+        for (int x = right; x >= right - 1; x--) {
+          if (x == 0 || y == 0 || x <= 8 && y <= 8 || n == totalBits)
+            continue;
+          bits[n++] = symbol.getModule(x, y) ^ masked(mask, x, y);
+        }
+      }
+    }
+    assertEquals(totalBits, n);
+
+    int dataCodewords = (dataBits + 7) / 8;
+    int[] codewords = new int[dataCodewords + eccCodewords];
+    for (int i = 0; i < dataBits; i++)
+      codewords[i / 8] |= (bits[i] ? 1 : 0) << (7 - i % 8);
+    for (int i = 0; i < eccCodewords * 8; i++)
+      codewords[dataCodewords + i / 8] |= (bits[dataBits + i] ? 1 : 0) << (7 - i % 8);
+    for (int root = 0, alpha = 1; root < eccCodewords; root++, alpha = multiply(alpha, 2)) {
+      int syndrome = 0;
+      for (int codeword : codewords)
+        syndrome = multiply(syndrome, alpha) ^ codeword;
+      assertEquals("syndrome " + root, 0, syndrome);
+    }
+
+    return readSegment(bits, dataBits, symbol.version);
+  }
+
+  private static String readSegment(boolean[] bits, int dataBits, int version) {
+    int[] position = {0};
+    int mode = read(bits, position, version - 1);
+    StringBuilder text = new StringBuilder();
+    switch (mode) {
+      case 0 -> {
+        int count = read(bits, position, version + 2);
+        for (; count >= 3; count -= 3)
+          text.append(String.format("%03d", read(bits, position, 10)));
+        if (count == 2)
+          text.append(String.format("%02d", read(bits, position, 7)));
+        else if (count == 1)
+          text.append(read(bits, position, 4));
+      }
+      case 1 -> {
+        int count = read(bits, position, version + 1);
+        for (; count >= 2; count -= 2) {
+          int pair = read(bits, position, 11);
+          text.append(ALPHANUMERIC.charAt(pair / 45)).append(ALPHANUMERIC.charAt(pair % 45));
+        }
+        if (count == 1)
+          text.append(ALPHANUMERIC.charAt(read(bits, position, 6)));
+      }
+      case 2 -> {
+        byte[] bytes = new byte[read(bits, position, version + 1)];
+        for (int i = 0; i < bytes.length; i++)
+          bytes[i] = (byte) read(bits, position, 8);
+        text.append(new String(bytes, StandardCharsets.UTF_8));
+      }
+      default -> throw new AssertionError("Unexpected mode " + mode);
+    }
+
+    int terminator = Math.min(version * 2 + 1, dataBits - position[0]);
+    assertEquals("terminator", 0, read(bits, position, terminator));
+    while (position[0] % 8 != 0 && position[0] < dataBits)
+      assertEquals("bit padding", 0, read(bits, position, 1));
+    for (int pad = 0xEC; dataBits - position[0] >= 8; pad ^= 0xEC ^ 0x11)
+      assertEquals("pad codeword", pad, read(bits, position, 8));
+    assertEquals("final 4-bit codeword", 0, read(bits, position, dataBits - position[0]));
+    return text.toString();
+  }
+
+  private static int read(boolean[] bits, int[] position, int length) {
+    int result = 0;
+    for (int i = 0; i < length; i++)
+      result = result << 1 | (bits[position[0]++] ? 1 : 0);
+    return result;
+  }
+
+  private static boolean masked(int mask, int x, int y) {
+    return switch (mask) {
+      case 0 -> y % 2 == 0;
+      case 1 -> (y / 2 + x / 3) % 2 == 0;
+      case 2 -> (y * x % 2 + y * x % 3) % 2 == 0;
+      case 3 -> ((y + x) % 2 + y * x % 3) % 2 == 0;
+      default -> throw new AssertionError();
+    };
+  }
+
+  private static int multiply(int x, int y) {
+    int z = 0;
+    for (int i = 7; i >= 0; i--) {
+      z = (z << 1) ^ ((z >>> 7) * 0x11D);
+      z ^= ((y >>> i) & 1) * x;
+    }
+    return z;
+  }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the mask penalties of {@link QrCode}, which skip over precomputed fixed modules, against a plain
+ * module-by-module scorer.
+ */
+public class PenaltyScoreTest {
+
+  @After
+  public void clearListener() {
+    QrMetrics.clearListener();
+  }
+
+  @Test
+  public void everyMaskScoresLikeTheReference() {
+    Random random = new Random(37);
+    for (int version = QrCode.MIN_VERSION; version <= QrCode.MAX_VERSION; version++) {
+      for (QrCode.Ecc ecc : QrCode.Ecc.values()) {
+        byte[] data = new byte[random.nextInt(7) + 1];
+        random.nextBytes(data);
+        List<QrSegment> segs = List.of(QrSegment.makeBytes(data));
+        int[] penalties = new int[8];
+        QrMetrics.setListener(new QrMetrics.Listener() {
+          @Override
+          public void maskPenalty(int mask, int penalty) {
+            penalties[mask] = penalty;
+          }
+        });
+        QrCode chosen = QrCode.encodeSegments(segs, ecc, version, version, -1, false);
+        QrMetrics.clearListener();
+
+        int best = 0;
+        for (int mask = 0; mask < 8; mask++) {
+          QrCode masked = QrCode.encodeSegments(segs, ecc, version, version, mask, false);
+          assertEquals("version " + version + " " + ecc + " mask " + mask, referencePenalty(masked), penalties[mask]);
+          if (penalties[mask] < penalties[best])
+            best = mask;
+        }
+        assertEquals(best, chosen.mask);
+      }
+    }
+  }
+
+  private static int referencePenalty(QrCode qr) {
+    int size = qr.size;
+    int result = 0;
+
+    for (int y = 0; y < size; y++) {
+      boolean runColor = false;
+      int runX = 0;
+      int[] runHistory = new int[7];
+      for (int x = 0; x < size; x++) {
+        if (qr.getModule(x, y) == runColor) {
+          runX++;
+          if (runX == 5)
+            result += 3;
+          else if (runX > 5)
+            result++;
+        } else {
+          addHistory(runX, runHistory, size);
+          if (!runColor)
+            result += countPatterns(runHistory) * 40;
+          runColor = qr.getModule(x, y);
+          runX = 1;
+        }
+      }
+      result += terminateAndCount(runColor, runX, runHistory, size) * 40;
+    }
+
+    for (int x = 0; x < size; x++) {
+      boolean runColor = false;
+      int runY = 0;
+      int[] runHistory = new int[7];
+      for (int y = 0; y < size; y++) {
+        if (qr.getModule(x, y) == runColor) {
+          runY++;
+          if (runY == 5)
+            result += 3;
+          else if (runY > 5)
+            result++;
+        } else {
+          addHistory(runY, runHistory, size);
+          if (!runColor)
+            result += countPatterns(runHistory) * 40;
+          runColor = qr.getModule(x, y);
+          runY = 1;
+        }
+      }
+      result += terminateAndCount(runColor, runY, runHistory, size) * 40;
+    }
+
+    for (int y = 0; y < size - 1; y++) {
+      for (int x = 0; x < size - 1; x++) {
+        boolean color = qr.getModule(x, y);
+        if (color == qr.getModule(x + 1, y) && color == qr.getModule(x, y + 1) && color == qr.getModule(x + 1, y + 1))
+          result += 3;
+      }
+    }
+
+    int dark = 0;
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++)
+        dark += qr.getModule(x, y) ? 1 : 0;
+    }
+    int total = size * size;
+    int k = (Math.abs(dark * 20 - total * 10) + total - 1) / total - 1;
+    return result + k * 10;
+  }
+
+  private static int countPatterns(int[] runHistory) {
+    int n = runHistory[1];
+    boolean core = n > 0 && runHistory[2] == n && runHistory[3] == n * 3 && runHistory[4] == n && runHistory[5] == n;
+    return (core && runHistory[0] >= n * 4 && runHistory[6] >= n ? 1 : 0)
+      + (core && runHistory[6] >= n * 4 && runHistory[0] >= n ? 1 : 0);
+  }
+
+  private static int terminateAndCount(boolean runColor, int runLength, int[] runHistory, int size) {
+    if (runColor) {
+      addHistory(runLength, runHistory, size);
+      runLength = 0;
+    }
+    addHistory(runLength + size, runHistory, size);
+    return countPatterns(runHistory);
+  }
+
+  private static void addHistory(int runLength, int[] runHistory, int size) {
+    if (runHistory[0] == 0)
+      runLength += size;
+    System.arraycopy(runHistory, 0, runHistory, 1, runHistory.length - 1);
+    runHistory[0] = runLength;
+  }
+
+}
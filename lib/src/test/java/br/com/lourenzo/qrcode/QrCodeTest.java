@@ -0,0 +1,137 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class QrCodeTest {
+
+  /**
+   * Version, error correction level, repeats of {@code "v<version><level initial>-"}, chosen mask and the
+   * first 12 bytes of the SHA-256 of {@link Symbols#toText}, as produced by the original int[] grid encoder.
+   */
+  private static final Object[][] GOLDEN = {
+    {1, "LOW", 4, 2, "298471a3ad613a70c7b71a91"},
+    {1, "MEDIUM", 2, 2, "5f3de60c15f0209d6f5d345b"},
+    {1, "QUARTILE", 2, 6, "46f9f83aa187134451c5ac4c"},
+    {1, "HIGH", 1, 2, "010afb95e14afc190e1a3d9c"},
+    {2, "LOW", 8, 1, "7bf1065bd312512dc0492243"},
+    {2, "MEDIUM", 4, 1, "49138a387116210ccd8477ce"},
+    {2, "QUARTILE", 4, 6, "13479874f95112ab6b1b9439"},
+    {2, "HIGH", 2, 3, "6820a6c6b19a78a7f8335eaa"},
+    {6, "LOW", 32, 2, "6ec8227135c9188ad7314d7c"},
+    {6, "MEDIUM", 16, 2, "07edc11839156ea4d5729114"},
+    {6, "QUARTILE", 16, 4, "5e04e5c419c7712381fedfdc"},
+    {6, "HIGH", 8, 2, "d01f5623338ff80d9394ddde"},
+    {7, "LOW", 32, 0, "2a756370fe135597f719f946"},
+    {7, "MEDIUM", 16, 0, "5b15e5d92289b3ed1f165baa"},
+    {7, "QUARTILE", 16, 6, "d458bdaf5af12fa52ecdbc50"},
+    {7, "HIGH", 16, 2, "4d0049405c2c846aa6401617"},
+    {13, "LOW", 64, 2, "0662306023237b512a6556a1"},
+    {13, "MEDIUM", 64, 2, "7d390d4c1c59ceafd4de1573"},
+    {13, "QUARTILE", 32, 6, "be63d7febb57c132cf66387e"},
+    {13, "HIGH", 32, 2, "16786386072af696fd147a5e"},
+    {21, "LOW", 128, 4, "1aa7896e328bbad05559128f"},
+    {21, "MEDIUM", 128, 2, "8b7dbf1b3ad093e6300a3c36"},
+    {21, "QUARTILE", 64, 4, "265166773f1c9b18c1edbbfe"},
+    {21, "HIGH", 64, 4, "7c72873b69455c9b438e7828"},
+    {32, "LOW", 256, 2, "3ce648e0938a5fcdfa804d8b"},
+    {32, "MEDIUM", 256, 2, "b9bb31c1e2e75c23f35fb8fa"},
+    {32, "QUARTILE", 128, 2, "bb46f10ba7131b8ae1eba64e"},
+    {32, "HIGH", 128, 2, "9241a951aaa085af79912996"},
+    {40, "LOW", 512, 0, "fcea4d510d9ba27fd5da0e3a"},
+    {40, "MEDIUM", 256, 2, "c481ccdda123a4ae4cec3caa"},
+    {40, "QUARTILE", 256, 0, "8a5499fff2ab485befe4494a"},
+    {40, "HIGH", 128, 0, "2dc3ce45589db41a55487aab"},
+  };
+
+  /**
+   * Mask and hash of {@code "HTTPS://EXAMPLE.COM/MASK/<mask>"} at version 7, level MEDIUM, with the mask forced.
+   */
+  private static final Object[][] GOLDEN_MASKS = {
+    {0, "40a7783ac5b57e3cae5b1aca"},
+    {1, "477e6e6684562c6349fb3fce"},
+    {2, "2265f19a9a7a56c7453caa45"},
+    {3, "f0cb3ab8ea8e56e1ada74032"},
+    {4, "68b0871df29b2e566d014c09"},
+    {5, "6c4c88608c8ada1c9a4dbdf2"},
+    {6, "2d6b8dd762f2aed2819b096d"},
+    {7, "ba9ab300c8410fe041315612"},
+  };
+
+  @Test
+  public void symbolsMatchTheOriginalEncoder() {
+    for (Object[] golden : GOLDEN) {
+      int version = (Integer) golden[0];
+      QrCode.Ecc ecc = QrCode.Ecc.valueOf((String) golden[1]);
+      String unit = "v" + version + ecc.name().charAt(0) + "-";
+      QrCode qr = QrCode.encodeSegments(QrSegment.makeSegments(unit.repeat((Integer) golden[2])), ecc,
+        version, version, -1, false);
+      assertEquals(unit, golden[3], qr.mask);
+      assertEquals(unit, golden[4], hash(qr));
+    }
+  }
+
+  @Test
+  public void forcedMasksMatchTheOriginalEncoder() {
+    for (Object[] golden : GOLDEN_MASKS) {
+      int mask = (Integer) golden[0];
+      QrCode qr = QrCode.encodeSegments(QrSegment.makeSegments("HTTPS://EXAMPLE.COM/MASK/" + mask),
+        QrCode.Ecc.MEDIUM, 7, 7, mask, false);
+      assertEquals(mask, qr.mask);
+      assertEquals("mask " + mask, golden[1], hash(qr));
+    }
+  }
+
+  @Test
+  public void rowsMatchModules() {
+    for (int version : new int[] {1, 3, 14, 15, 16, 40}) {
+      QrCode qr = QrCode.encodeSegments(QrSegment.makeSegments("rows"), QrCode.Ecc.LOW, version, version, -1, false);
+      long[] row = new long[(qr.size + 63) / 64];
+      for (int y = 0; y < qr.size; y++) {
+        qr.getRow(y, row);
+        for (int x = 0; x < row.length * 64; x++)
+          assertEquals("version " + version + " (" + x + ", " + y + ")", x < qr.size && qr.getModule(x, y),
+            (row[x >>> 6] >>> x & 1) != 0);
+      }
+    }
+  }
+
+  @Test
+  public void modulesOutsideTheSymbolAreLight() {
+    QrCode qr = QrCode.encodeText("outside", QrCode.Ecc.LOW);
+    assertFalse(qr.getModule(-1, 0));
+    assertFalse(qr.getModule(0, -1));
+    assertFalse(qr.getModule(qr.size, 0));
+    assertFalse(qr.getModule(0, qr.size));
+  }
+
+  private static String hash(QrSymbol symbol) {
+    try {
+      byte[] text = Symbols.toText(symbol).getBytes(StandardCharsets.UTF_8);
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(text);
+      return HexFormat.of().formatHex(digest, 0, 12);
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class QrSegmentTest {
+
+  @Test
+  public void numericMatchesTheStandardExample() {
+    QrSegment seg = QrSegment.makeNumeric("01234567");
+    assertEquals(QrSegment.Mode.NUMERIC, seg.mode);
+    assertEquals(8, seg.numChars);
+    assertEquals("0000001100" + "0101011001" + "1000011", bits(seg));
+  }
+
+  @Test
+  public void alphanumericMatchesTheStandardExample() {
+    QrSegment seg = QrSegment.makeAlphanumeric("AC-42");
+    assertEquals(QrSegment.Mode.ALPHANUMERIC, seg.mode);
+    assertEquals(5, seg.numChars);
+    assertEquals("00111001110" + "11100111001" + "000010", bits(seg));
+  }
+
+  @Test
+  public void makeSegmentsPicksTheMostCompactMode() {
+    assertEquals(QrSegment.Mode.NUMERIC, QrSegment.makeSegments("0123456789").get(0).mode);
+    assertEquals(QrSegment.Mode.ALPHANUMERIC, QrSegment.makeSegments("0123 ABC").get(0).mode);
+    assertEquals(QrSegment.Mode.ALPHANUMERIC, QrSegment.makeSegments("ABC0123").get(0).mode);
+    assertEquals(QrSegment.Mode.BYTE, QrSegment.makeSegments("0123abc").get(0).mode);
+    assertEquals(QrSegment.Mode.NUMERIC, QrSegment.makeSegments("").get(0).mode);
+    assertEquals(0, QrSegment.makeSegments("").get(0).bitLength);
+  }
+
+  @Test
+  public void makeSegmentsMatchesTheSingleModeFactories() {
+    assertEquals(bits(QrSegment.makeNumeric("3141592653589")), bits(QrSegment.makeSegments("3141592653589").get(0)));
+    assertEquals(bits(QrSegment.makeAlphanumeric("HTTP://X.Y/Z")),
+      bits(QrSegment.makeSegments("HTTP://X.Y/Z").get(0)));
+  }
+
+  @Test
+  public void byteModeIsUtf8() {
+    for (String text : List.of("https://example.com/?q=1", "ação", "日本語", "emoji 😀", "bad \uD800 x",
+      "bad \uDC00", "tail \uD83D")) {
+      QrSegment seg = QrSegment.makeSegments(text).get(0);
+      byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+      assertEquals(text, QrSegment.Mode.BYTE, seg.mode);
+      assertEquals(text, utf8.length, seg.numChars);
+      assertEquals(text, bits(QrSegment.makeBytes(utf8)), bits(seg));
+    }
+  }
+
+  @Test
+  public void byteSlicesAndBuffersMatchArrays() {
+    byte[] data = new byte[37];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) (i * 37 + 11);
+    String expected = bits(QrSegment.makeBytes(Arrays.copyOfRange(data, 3, 30)));
+    assertEquals(expected, bits(QrSegment.makeBytes(data, 3, 27)));
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length).put(data);
+    buffer.position(3).limit(30);
+    assertEquals(expected, bits(QrSegment.makeBytes(buffer)));
+    assertEquals(3, buffer.position());
+  }
+
+  @Test
+  public void stringAndCharSequenceOverloadsAgree() {
+    StringBuilder text = new StringBuilder("HELLO WORLD");
+    assertEquals(bits(QrSegment.makeSegments("HELLO WORLD").get(0)), bits(QrSegment.makeSegments(text).get(0)));
+    assertTrue(QrSegment.isNumeric("0042") && QrSegment.isNumeric(new StringBuilder("0042")));
+    assertFalse(QrSegment.isAlphanumeric("lower") || QrSegment.isAlphanumeric(new StringBuilder("lower")));
+    assertEquals(Symbols.toText(QrCode.encodeText("HELLO WORLD", QrCode.Ecc.LOW)),
+      Symbols.toText(QrCode.encodeText(text, QrCode.Ecc.LOW)));
+  }
+
+  @Test
+  public void rejectsInvalidCharacters() {
+    assertThrows(IllegalArgumentException.class, () -> QrSegment.makeNumeric("12a"));
+    assertThrows(IllegalArgumentException.class, () -> QrSegment.makeAlphanumeric("abc"));
+  }
+
+  @Test
+  public void hugeInputIsRejectedBeforePacking() {
+    assertThrows(IllegalArgumentException.class, () -> QrSegment.makeNumeric(repeat('0', Integer.MAX_VALUE)));
+    assertThrows(IllegalArgumentException.class,
+      () -> QrSegment.makeAlphanumeric(repeat('A', Integer.MAX_VALUE / 4)));
+    assertThrows(IllegalArgumentException.class, () -> QrSegment.makeSegments(repeat('a', Integer.MAX_VALUE / 4)));
+    assertThrows(DataTooLongException.class, () -> QrCode.encodeText(repeat('a', 8000), QrCode.Ecc.LOW));
+  }
+
+  static String bits(QrSegment seg) {
+    StringBuilder result = new StringBuilder(seg.bitLength);
+    for (int i = 0; i < seg.bitLength; i++)
+      result.append((seg.data[i >>> 6] >>> (63 - (i & 63)) & 1) != 0 ? '1' : '0');
+    return result.toString();
+  }
+
+  /**
+   * A character sequence of the given length without the memory behind it.
+   */
+  private static CharSequence repeat(char c, int length) {
+    return new CharSequence() {
+      @Override
+      public int length() {
+        return length;
+      }
+
+      @Override
+      public char charAt(int index) {
+        return c;
+      }
+
+      @Override
+      public CharSequence subSequence(int start, int end) {
+        return repeat(c, end - start);
+      }
+
+      @Override
+      public String toString() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+}
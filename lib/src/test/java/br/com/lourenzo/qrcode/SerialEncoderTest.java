@@ -0,0 +1,83 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * {@link SerialEncoder} must give exactly the symbol {@link QrCode#encodeText} gives for the whole payload.
+ */
+public class SerialEncoderTest {
+
+  private static final String[] PREFIXES = {
+    "", "1", "12", "123", "1234", "A", "AB", "ABC", "HTTPS://T.EXAMPLE.COM/TICKET/",
+    "https://t.example.com/ticket/", "https://t.example.com/ticket/0000", "é€\uD83D", "x\uD83D", "\uD83D", "€€€"
+  };
+
+  private static final String CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:abcé€😀\uDE00";
+
+  @Test
+  public void suffixesEncodeLikeTheWholePayload() {
+    Random random = new Random(42);
+    for (String prefix : PREFIXES) {
+      for (QrCode.Ecc ecc : QrCode.Ecc.values()) {
+        SerialEncoder encoder = new SerialEncoder(prefix, ecc);
+        for (int i = 0; i < 40; i++) {
+          // Digits only, alphanumeric only or anything, so the suffix can keep or change the prefix mode
+          int kind = random.nextInt(3);
+          int alphabet = kind == 0 ? 10 : kind == 1 ? 45 : CHARACTERS.length();
+          int length = random.nextInt(i % 10 == 0 ? 1500 : 60);
+          StringBuilder suffix = new StringBuilder(length);
+          for (int j = 0; j < length; j++)
+            suffix.append(CHARACTERS.charAt(random.nextInt(alphabet)));
+          assertSameSymbol(prefix, suffix.toString(), ecc, encoder);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void longNumericPrefix() {
+    String prefix = "9".repeat(3000);
+    Random random = new Random(7);
+    for (QrCode.Ecc ecc : QrCode.Ecc.values()) {
+      SerialEncoder encoder = new SerialEncoder(prefix, ecc);
+      for (int i = 0; i < 10; i++)
+        assertSameSymbol(prefix, Integer.toString(random.nextInt(1_000_000)), ecc, encoder);
+    }
+  }
+
+  @Test
+  public void encoderIsReusable() {
+    SerialEncoder encoder = new SerialEncoder("https://t.example.com/ticket/", QrCode.Ecc.MEDIUM);
+    for (int i = 0; i < 200; i++)
+      assertSameSymbol(encoder.getPrefix(), Integer.toString(i), QrCode.Ecc.MEDIUM, encoder);
+  }
+
+  private static void assertSameSymbol(String prefix, String suffix, QrCode.Ecc ecc, SerialEncoder encoder) {
+    QrCode expected;
+    try {
+      expected = QrCode.encodeText(prefix + suffix, ecc);
+    } catch (DataTooLongException e) {
+      assertThrows(prefix + "|" + suffix, DataTooLongException.class, () -> encoder.encode(suffix));
+      return;
+    }
+    assertEquals(prefix + "|" + suffix, Symbols.toText(expected), Symbols.toText(encoder.encode(suffix)));
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SvgQrCodeTest {
+
+  @Test
+  public void microFinderStyleIsDefinedWithoutALogo() throws Exception {
+    for (boolean compact : new boolean[] {false, true}) {
+      SvgQrCode renderer = SvgQrCode.builder().allowMicro(true).compact(compact).build();
+      String svg = renderer.generateSvgFile("12345");
+
+      assertTrue(renderer.getEncodingDecision().micro());
+      assertTrue(svg.contains("class=\"logoMarker\""));
+      assertTrue(svg.contains(".logoMarker{fill:url(#logoGradientPattern);}"));
+      assertTrue(svg.contains("id=\"logoGradientPattern\""));
+      assertEquals(svg, concatenate(renderer.generateSvgBuffers("12345")));
+      parse(svg);
+    }
+  }
+
+  @Test
+  public void sheetDefinesTheFinderStyleOnce() throws Exception {
+    SvgQrCode renderer = SvgQrCode.builder().allowMicro(true).build();
+    StringBuilder out = new StringBuilder();
+    try (SvgSheet sheet = renderer.openSheet(out, 2, 1, 100)) {
+      sheet.add("12345");
+      sheet.add("https://example.com/");
+    }
+    String svg = out.toString();
+
+    assertEquals(svg.indexOf(".logoMarker{"), svg.lastIndexOf(".logoMarker{"));
+    assertEquals(svg.indexOf("id=\"logoGradientPattern\""), svg.lastIndexOf("id=\"logoGradientPattern\""));
+    parse(svg);
+  }
+
+  private static String concatenate(ByteBuffer[] buffers) {
+    StringBuilder result = new StringBuilder();
+    for (ByteBuffer buffer : buffers)
+      result.append(StandardCharsets.UTF_8.decode(buffer.duplicate()));
+    return result.toString();
+  }
+
+  private static void parse(String svg) throws Exception {
+    DocumentBuilderFactory.newInstance().newDocumentBuilder()
+      .parse(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SvgSubscriptionTest {
+
+  private static final Executor DIRECT = Runnable::run;
+
+  private final SvgQrCode renderer = SvgQrCode.builder().build();
+
+  @Test
+  public void chunksConcatenateToTheDocument() {
+    String url = "https://example.com/" + "x".repeat(1500);
+    Recorder recorder = new Recorder(Long.MAX_VALUE);
+    renderer.publishSvgFile(url, DIRECT).subscribe(recorder);
+
+    assertTrue(recorder.completed);
+    assertEquals(null, recorder.error);
+    assertTrue(recorder.chunks > 1);
+    assertEquals(renderer.generateSvgFile(url), recorder.body.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void emitsOnlyWhatWasRequested() {
+    Recorder recorder = new Recorder(1);
+    renderer.publishSvgFile("https://example.com/" + "x".repeat(1500), DIRECT).subscribe(recorder);
+
+    assertEquals(1, recorder.chunks);
+    assertFalse(recorder.completed);
+    recorder.subscription.request(Long.MAX_VALUE);
+    assertTrue(recorder.completed);
+  }
+
+  @Test
+  public void throwingOnNextCancelsAndSignalsError() {
+    RuntimeException failure = new IllegalStateException("subscriber failed");
+    Recorder recorder = new Recorder(Long.MAX_VALUE) {
+      @Override
+      public void onNext(ByteBuffer item) {
+        super.onNext(item);
+        throw failure;
+      }
+    };
+    renderer.publishSvgFile("https://example.com/" + "x".repeat(1500), DIRECT).subscribe(recorder);
+
+    assertSame(failure, recorder.error);
+    assertEquals(1, recorder.chunks);
+    assertFalse(recorder.completed);
+    recorder.subscription.request(1);
+    assertEquals(1, recorder.chunks);
+    assertEquals(1, recorder.signals.stream().filter("error"::equals).count());
+  }
+
+  @Test
+  public void nonPositiveRequestSignalsError() {
+    Recorder recorder = new Recorder(0);
+    renderer.publishSvgFile("https://example.com/", DIRECT).subscribe(recorder);
+
+    assertTrue(recorder.error instanceof IllegalArgumentException);
+    assertEquals(0, recorder.chunks);
+  }
+
+  private static class Recorder implements Flow.Subscriber<ByteBuffer> {
+
+    final long initialRequest;
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    final List<String> signals = new ArrayList<>();
+    Flow.Subscription subscription;
+    int chunks;
+    boolean completed;
+    Throwable error;
+
+    Recorder(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      signals.add("next");
+      chunks++;
+      byte[] bytes = new byte[item.remaining()];
+      item.get(bytes);
+      body.writeBytes(bytes);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      signals.add("error");
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      signals.add("complete");
+      completed = true;
+    }
+
+  }
+
+}
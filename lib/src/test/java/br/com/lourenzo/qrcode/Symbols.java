@@ -0,0 +1,40 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode;
+
+/**
+ * Text pictures of symbols for comparing them in assertions.
+ */
+final class Symbols {
+
+  private Symbols() {
+  }
+
+  /**
+   * One line per row, {@code #} for dark and {@code .} for light modules, after a line with the version,
+   * error correction level and mask.
+   */
+  static String toText(QrSymbol symbol) {
+    int size = symbol.getSize();
+    StringBuilder text = new StringBuilder((size + 1) * (size + 1));
+    text.append(symbol.isMicro() ? "M" : "").append(symbol.getVersion()).append(' ')
+      .append(symbol.getErrorCorrectionLevel()).append(" mask ").append(symbol.getMask()).append('\n');
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++)
+        text.append(symbol.getModule(x, y) ? '#' : '.');
+      text.append('\n');
+    }
+    return text.toString();
+  }
+
+}
@@ -0,0 +1,29 @@
+plugins {
+  application
+}
+
+repositories {
+  mavenCentral()
+}
+
+dependencies {
+  implementation(project(":lib"))
+  testImplementation(libs.junit)
+}
+
+java {
+  toolchain {
+    languageVersion.set(JavaLanguageVersion.of(21))
+  }
+}
+
+application {
+  mainClass.set("br.com.lourenzo.qrcode.server.QrCodeServer")
+}
+
+tasks.register<JavaExec>("loadTest") {
+  group = "application"
+  description = "Runs the load generator against a running QrCodeServer."
+  classpath = sourceSets["main"].runtimeClasspath
+  mainClass.set("br.com.lourenzo.qrcode.server.LoadGenerator")
+}
@@ -0,0 +1,132 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.server;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear microsecond buckets (16 sub-buckets per power of two,
+ * so any reported value is within about 6% of the recorded one). Benchmarks that record from many threads
+ * can give each its own and merge them with {@link #add(LatencyHistogram)}.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_MAGNITUDE = 40;
+
+  private static final double[] EXPOSED_BOUNDS_SECONDS = {
+    0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+  };
+
+  private final AtomicLongArray counts = new AtomicLongArray((MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+
+  public void recordNanos(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    counts.incrementAndGet(indexOf(Math.min(micros, (1L << MAX_MAGNITUDE) - 1)));
+    totalCount.increment();
+    totalMicros.add(micros);
+  }
+
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length(); i++) {
+      long count = other.counts.get(i);
+      if (count != 0)
+        counts.addAndGet(i, count);
+    }
+    totalCount.add(other.totalCount.sum());
+    totalMicros.add(other.totalMicros.sum());
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public double getMeanMicros() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) totalMicros.sum() / count;
+  }
+
+  public long getPercentileMicros(double percentile) {
+    long[] snapshot = snapshot();
+    long total = 0;
+    for (long count : snapshot)
+      total += count;
+    if (total == 0)
+      return 0;
+    long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= target)
+        return highestEquivalent(i);
+    }
+    return highestEquivalent(snapshot.length - 1);
+  }
+
+  public long getMaxMicros() {
+    long[] snapshot = snapshot();
+    for (int i = snapshot.length - 1; i >= 0; i--) {
+      if (snapshot[i] != 0)
+        return highestEquivalent(i);
+    }
+    return 0;
+  }
+
+  void writePrometheus(StringBuilder out, String name, String labels) {
+    long[] snapshot = snapshot();
+    long cumulative = 0;
+    int index = 0;
+    for (double bound : EXPOSED_BOUNDS_SECONDS) {
+      long boundMicros = (long) (bound * 1_000_000);
+      while (index < snapshot.length && highestEquivalent(index) <= boundMicros)
+        cumulative += snapshot[index++];
+      out.append(name).append("_bucket{").append(labels)
+        .append(",le=\"").append(BigDecimal.valueOf(bound).toPlainString()).append("\"} ")
+        .append(cumulative).append('\n');
+    }
+    out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(getCount()).append('\n');
+    out.append(name).append("_sum{").append(labels).append("} ").append(totalMicros.sum() / 1e6).append('\n');
+    out.append(name).append("_count{").append(labels).append("} ").append(getCount()).append('\n');
+  }
+
+  private long[] snapshot() {
+    long[] result = new long[counts.length()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = counts.get(i);
+    return result;
+  }
+
+  private static int indexOf(long micros) {
+    if (micros < SUB_BUCKETS)
+      return (int) micros;
+    int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+    int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long highestEquivalent(int index) {
+    if (index < SUB_BUCKETS)
+      return index;
+    int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int subBucket = index % SUB_BUCKETS;
+    long lowest = (long) (SUB_BUCKETS + subBucket) << (magnitude - SUB_BUCKET_BITS);
+    return lowest + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+  }
+
+}
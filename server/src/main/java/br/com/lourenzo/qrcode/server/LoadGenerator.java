@@ -0,0 +1,88 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.server;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for {@link QrCodeServer}.
+ * <p>
+ * Usage: {@code LoadGenerator [baseUrl] [concurrency] [durationSeconds] [distinctPayloads]}
+ */
+public final class LoadGenerator {
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080/svg";
+    int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+    int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+    int distinctPayloads = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+    ExecutorService executor = QrCodeServer.newTaskExecutor();
+    HttpClient client = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+
+    LatencyHistogram latency = new LatencyHistogram();
+    Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    LongAdder errors = new LongAdder();
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+    for (int i = 0; i < concurrency; i++) {
+      executor.execute(() -> {
+        while (System.nanoTime() < deadline) {
+          String text = "https://t.example.com/ticket/" + ThreadLocalRandom.current().nextInt(distinctPayloads);
+          URI uri = URI.create(baseUrl + "?text=" + URLEncoder.encode(text, StandardCharsets.UTF_8));
+          HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+          long requestStart = System.nanoTime();
+          try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            latency.recordNanos(System.nanoTime() - requestStart);
+            statuses.computeIfAbsent(response.statusCode(), k -> new LongAdder()).increment();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          } catch (Exception e) {
+            errors.increment();
+          }
+        }
+      });
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+    double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf("requests:    %d in %.1f s (%.0f req/s)%n",
+      latency.getCount(), elapsedSeconds, latency.getCount() / elapsedSeconds);
+    System.out.printf("latency us:  p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+      latency.getPercentileMicros(50), latency.getPercentileMicros(90), latency.getPercentileMicros(99),
+      latency.getPercentileMicros(99.9), latency.getMaxMicros());
+    statuses.forEach((status, count) -> System.out.printf("status %d:  %d%n", status, count.sum()));
+    if (errors.sum() > 0)
+      System.out.printf("errors:      %d%n", errors.sum());
+  }
+
+}
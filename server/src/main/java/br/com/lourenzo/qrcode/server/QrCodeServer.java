@@ -0,0 +1,399 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.server;
+
+import br.com.lourenzo.qrcode.DataTooLongException;
+import br.com.lourenzo.qrcode.PngSink;
+import br.com.lourenzo.qrcode.QrCode;
+import br.com.lourenzo.qrcode.RenderPipeline;
+import br.com.lourenzo.qrcode.SvgQrCode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Minimal HTTP front end for {@link SvgQrCode}. Every request gets its own renderer instance, the number of
+ * renders in flight is bounded and excess load is shed with 503 instead of queueing. With a
+ * {@link RenderStore}, rendered bodies survive restarts and the store key is the ETag.
+ */
+public final class QrCodeServer {
+
+  private static final int MAX_SCALE = 100;
+  private static final int MAX_BORDER = 64;
+  private static final int MAX_PNG_SIZE = 4096;
+
+  /**
+   * Part of every store key: the server's key and PNG format, the library's output version and, when running
+   * from the library jar, its build. Bodies stored by a build that renders differently are never served.
+   */
+  private static final String STORE_GENERATION = "2:" + SvgQrCode.OUTPUT_VERSION + ":"
+    + Objects.requireNonNullElse(SvgQrCode.class.getPackage().getImplementationVersion(), "dev");
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final Semaphore inFlight;
+  private final int maxInFlight;
+  private final LatencyHistogram svgLatency = new LatencyHistogram();
+  private final LatencyHistogram pngLatency = new LatencyHistogram();
+  private final LongAdder shed = new LongAdder();
+  private final LongAdder notModified = new LongAdder();
+  private final LongAdder storeErrors = new LongAdder();
+  private final RenderStore store;
+
+  public QrCodeServer(InetSocketAddress address, int maxInFlight) throws IOException {
+    this(address, maxInFlight, null);
+  }
+
+  /**
+   * @param store persistent store of rendered bodies, closed by {@link #stop(int)}, or null
+   */
+  public QrCodeServer(InetSocketAddress address, int maxInFlight, RenderStore store) throws IOException {
+    if (maxInFlight < 1)
+      throw new IllegalArgumentException("maxInFlight must be positive");
+    this.maxInFlight = maxInFlight;
+    this.store = store;
+    inFlight = new Semaphore(maxInFlight);
+    executor = newTaskExecutor();
+    server = HttpServer.create(address, 0);
+    server.setExecutor(executor);
+    server.createContext("/svg", exchange -> render(exchange, "image/svg+xml", svgLatency,
+      QrCodeServer::svgKey, QrCodeServer::renderSvg));
+    server.createContext("/png", exchange -> render(exchange, "image/png", pngLatency,
+      QrCodeServer::pngKey, QrCodeServer::renderPng));
+    server.createContext("/metrics", this::metrics);
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = Integer.getInteger("qrcode.server.port", 8080);
+    int maxInFlight = Integer.getInteger("qrcode.server.maxInFlight", Runtime.getRuntime().availableProcessors() * 4);
+    String storeDirectory = System.getProperty("qrcode.server.store");
+    RenderStore store = storeDirectory == null ? null
+      : RenderStore.open(Path.of(storeDirectory), Long.getLong("qrcode.server.storeMaxBytes", 1L << 30));
+    QrCodeServer server = new QrCodeServer(new InetSocketAddress(port), maxInFlight, store);
+    server.start();
+    System.out.printf("Listening on port %d (max in flight: %d)%n", server.getPort(), maxInFlight);
+    if (store != null)
+      System.out.printf("Render store: %s (%d entries)%n", storeDirectory, store.getEntryCount());
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops accepting exchanges, waits up to {@code delaySeconds} for the running ones to finish and then closes
+   * the store; a handler still running after that finds the store closed and renders without it.
+   */
+  public void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Math.max(delaySeconds, 1), TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (store != null) {
+      try {
+        store.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * One virtual thread per exchange; the in-flight semaphore, not the pool, bounds concurrent renders.
+   */
+  static ExecutorService newTaskExecutor() {
+    return Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  private void render(HttpExchange exchange, String contentType, LatencyHistogram latency,
+                      Function<Map<String, String>, String> keyFunction,
+                      Function<Map<String, String>, byte[]> renderer) throws IOException {
+    try (exchange) {
+      String method = exchange.getRequestMethod();
+      if (!method.equals("GET") && !method.equals("HEAD")) {
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      if (!inFlight.tryAcquire()) {
+        shed.increment();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+
+      long start = System.nanoTime();
+      try {
+        Map<String, String> params;
+        try {
+          params = parseQuery(exchange.getRequestURI().getRawQuery());
+        } catch (IllegalArgumentException e) {
+          sendText(exchange, 400, "Malformed query string");
+          return;
+        }
+        RenderStore.Key key = null;
+        if (store != null) {
+          try {
+            key = RenderStore.Key.of(STORE_GENERATION + "\n" + keyFunction.apply(params));
+          } catch (IllegalArgumentException e) {
+            sendText(exchange, 400, e.getMessage());
+            return;
+          }
+          if (sendNotModified(exchange, key.etag()))
+            return;
+          exchange.getResponseHeaders().set("Content-Type", contentType);
+          if (method.equals("HEAD")) {
+            int length = store.length(key);
+            if (length >= 0) {
+              exchange.getResponseHeaders().set("Content-Length", Integer.toString(length));
+              exchange.sendResponseHeaders(200, -1);
+              return;
+            }
+          } else if (store.transferTo(key, length -> {
+            exchange.sendResponseHeaders(200, length);
+            return Channels.newChannel(exchange.getResponseBody());
+          })) {
+            exchange.getResponseBody().close();
+            return;
+          }
+        }
+
+        byte[] body;
+        try {
+          body = renderer.apply(params);
+        } catch (DataTooLongException e) {
+          sendText(exchange, 413, e.getMessage());
+          return;
+        } catch (IllegalArgumentException e) {
+          sendText(exchange, 400, e.getMessage());
+          return;
+        }
+
+        if (key != null) {
+          try {
+            store.put(key, body);
+          } catch (IOException e) {
+            storeErrors.increment();
+          }
+        } else if (sendNotModified(exchange, etag(body)))
+          return;
+
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (method.equals("HEAD")) {
+          exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+          exchange.sendResponseHeaders(200, -1);
+          return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      } finally {
+        latency.recordNanos(System.nanoTime() - start);
+        inFlight.release();
+      }
+    }
+  }
+
+  private boolean sendNotModified(HttpExchange exchange, String etag) throws IOException {
+    exchange.getResponseHeaders().set("ETag", etag);
+    exchange.getResponseHeaders().set("Cache-Control", "public, max-age=86400");
+    if (!matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag))
+      return false;
+    notModified.increment();
+    exchange.sendResponseHeaders(304, -1);
+    return true;
+  }
+
+  /**
+   * Canonical description of everything {@link #renderSvg} output depends on, with defaults filled in.
+   */
+  private static String svgKey(Map<String, String> params) {
+    return "svg\n" + intParam(params, "scale", 10, 1, MAX_SCALE) + "\n" + intParam(params, "border", 4, 0, MAX_BORDER)
+      + "\n" + (params.containsKey("ecc") ? eccParam(params) : QrCode.Ecc.LOW) + "\n" + textParam(params);
+  }
+
+  private static String pngKey(Map<String, String> params) {
+    return "png\n" + intParam(params, "scale", 10, 1, MAX_SCALE) + "\n" + intParam(params, "border", 4, 0, MAX_BORDER)
+      + "\n" + (params.containsKey("ecc") ? eccParam(params) : QrCode.Ecc.MEDIUM) + "\n" + textParam(params);
+  }
+
+  private static byte[] renderSvg(Map<String, String> params) {
+    SvgQrCode.SvgQrCodeBuilder builder = SvgQrCode.builder()
+      .scale(intParam(params, "scale", 10, 1, MAX_SCALE))
+      .border(intParam(params, "border", 4, 0, MAX_BORDER));
+    if (params.containsKey("ecc"))
+      builder.minErrorCorrectionLevel(eccParam(params));
+    return builder.build().generateSvgFile(textParam(params)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] renderPng(Map<String, String> params) {
+    QrCode.Ecc ecc = params.containsKey("ecc") ? eccParam(params) : QrCode.Ecc.MEDIUM;
+    QrCode qr = QrCode.encodeText(textParam(params), ecc);
+    int scale = intParam(params, "scale", 10, 1, MAX_SCALE);
+    int border = intParam(params, "border", 4, 0, MAX_BORDER);
+
+    if ((qr.size + border * 2) * scale > MAX_PNG_SIZE)
+      throw new IllegalArgumentException("Image too large, at most " + MAX_PNG_SIZE + " pixels wide");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      new RenderPipeline().add(new PngSink(out, scale, border)).render(qr);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private void metrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      StringBuilder out = new StringBuilder();
+      out.append("# TYPE qrcode_render_seconds histogram\n");
+      svgLatency.writePrometheus(out, "qrcode_render_seconds", "format=\"svg\"");
+      pngLatency.writePrometheus(out, "qrcode_render_seconds", "format=\"png\"");
+      out.append("# TYPE qrcode_render_p99_seconds gauge\n");
+      out.append("qrcode_render_p99_seconds{format=\"svg\"} ").append(svgLatency.getPercentileMicros(99) / 1e6)
+        .append('\n');
+      out.append("qrcode_render_p99_seconds{format=\"png\"} ").append(pngLatency.getPercentileMicros(99) / 1e6)
+        .append('\n');
+      out.append("# TYPE qrcode_requests_shed_total counter\n");
+      out.append("qrcode_requests_shed_total ").append(shed.sum()).append('\n');
+      out.append("# TYPE qrcode_requests_not_modified_total counter\n");
+      out.append("qrcode_requests_not_modified_total ").append(notModified.sum()).append('\n');
+      out.append("# TYPE qrcode_requests_in_flight gauge\n");
+      out.append("qrcode_requests_in_flight ").append(maxInFlight - inFlight.availablePermits()).append('\n');
+      if (store != null) {
+        out.append("# TYPE qrcode_store_hits_total counter\n");
+        out.append("qrcode_store_hits_total ").append(store.getHits()).append('\n');
+        out.append("# TYPE qrcode_store_misses_total counter\n");
+        out.append("qrcode_store_misses_total ").append(store.getMisses()).append('\n');
+        out.append("# TYPE qrcode_store_errors_total counter\n");
+        out.append("qrcode_store_errors_total ").append(storeErrors.sum()).append('\n');
+        out.append("# TYPE qrcode_store_entries gauge\n");
+        out.append("qrcode_store_entries ").append(store.getEntryCount()).append('\n');
+        out.append("# TYPE qrcode_store_bytes gauge\n");
+        out.append("qrcode_store_bytes ").append(store.getDataSize()).append('\n');
+      }
+
+      byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    }
+  }
+
+  private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+    byte[] body = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  static String etag(byte[] body) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+      return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null)
+      return false;
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/"))
+        tag = tag.substring(2);
+      if (tag.equals("*") || tag.equals(etag))
+        return true;
+    }
+    return false;
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> result = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty())
+      return result;
+    for (String pair : rawQuery.split("&")) {
+      int eq = pair.indexOf('=');
+      String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+      String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+      result.putIfAbsent(key, value);
+    }
+    return result;
+  }
+
+  private static String textParam(Map<String, String> params) {
+    String text = params.get("text");
+    if (text == null)
+      throw new IllegalArgumentException("Missing 'text' parameter");
+    return text;
+  }
+
+  private static QrCode.Ecc eccParam(Map<String, String> params) {
+    try {
+      return QrCode.Ecc.valueOf(params.get("ecc").toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid 'ecc' parameter");
+    }
+  }
+
+  private static int intParam(Map<String, String> params, String name, int defaultValue, int min, int max) {
+    String value = params.get(name);
+    if (value == null)
+      return defaultValue;
+    try {
+      int result = Integer.parseInt(value);
+      if (result < min || result > max)
+        throw new IllegalArgumentException("'" + name + "' must be between " + min + " and " + max);
+      return result;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid '" + name + "' parameter");
+    }
+  }
+
+}
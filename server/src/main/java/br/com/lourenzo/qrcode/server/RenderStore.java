@@ -0,0 +1,499 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Disk-backed store of rendered bodies keyed by a hash of everything that determines them, so a restarted
+ * server serves hot codes without rendering them again. Bodies are appended to a data file and located
+ * through a memory-mapped open-addressing index; a hit is copied to the client with
+ * {@link FileChannel#transferTo}. When the data file would outgrow its bound, the most recently used entries
+ * that fit in half of it are copied to a new file and the rest are dropped.
+ *
+ * <p>Data records are written before their index slot, and the index records how much of the data file it
+ * covers, so after a crash the index is rolled forward from the data file on open.
+ */
+public final class RenderStore implements Closeable {
+
+  private static final String DATA_FILE = "renders.dat";
+  private static final String INDEX_FILE = "renders.idx";
+
+  private static final int INDEX_MAGIC = 0x51524958;
+  private static final int RECORD_MAGIC = 0x51525244;
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 64;
+  private static final int CAPACITY_OFFSET = 8;
+  private static final int COUNT_OFFSET = 12;
+  private static final int DATA_SIZE_OFFSET = 16;
+  private static final int CLOCK_OFFSET = 24;
+
+  private static final int SLOT_SIZE = 40;
+  private static final int SLOT_OFFSET = 16;
+  private static final int SLOT_STAMP = 24;
+  private static final int SLOT_LENGTH = 32;
+
+  private static final int RECORD_HEADER_SIZE = 24;
+  private static final int MIN_CAPACITY = 1024;
+
+  private final Path directory;
+  private final long maxBytes;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicLong clock = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private DataFile data;
+  private long dataSize;
+  private FileChannel indexChannel;
+  private MappedByteBuffer index;
+  private int capacity;
+  private int count;
+
+  private RenderStore(Path directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Opens or creates a store in {@code directory} whose data file is kept under {@code maxBytes}.
+   */
+  public static RenderStore open(Path directory, long maxBytes) throws IOException {
+    Objects.requireNonNull(directory);
+    if (maxBytes < RECORD_HEADER_SIZE * 2L)
+      throw new IllegalArgumentException("maxBytes too small");
+    Files.createDirectories(directory);
+    RenderStore store = new RenderStore(directory, maxBytes);
+    store.load();
+    return store;
+  }
+
+  /**
+   * Writes the body stored under {@code key} to the channel {@code target} opens for its length, and returns
+   * false without calling it on a miss or once the store is closed. Only the lookup holds the lock: the
+   * transfer reads the immutable record from the data file generation it was found in, so slow clients do not
+   * hold up other requests.
+   */
+  public boolean transferTo(Key key, Target target) throws IOException {
+    DataFile file;
+    long position;
+    int length;
+    lock.readLock().lock();
+    try {
+      if (data == null) {
+        misses.increment();
+        return false;
+      }
+      int slot = find(key);
+      if (isEmpty(slot)) {
+        misses.increment();
+        return false;
+      }
+      hits.increment();
+      index.putLong(slot + SLOT_STAMP, clock.incrementAndGet());
+      length = index.getInt(slot + SLOT_LENGTH);
+      position = index.getLong(slot + SLOT_OFFSET) + RECORD_HEADER_SIZE;
+      file = data;
+      file.retain();
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    try {
+      WritableByteChannel out = target.open(length);
+      for (long end = position + length; position < end; )
+        position += file.channel.transferTo(position, end - position, out);
+      return true;
+    } finally {
+      file.release();
+    }
+  }
+
+  /**
+   * Length of the body stored under {@code key}, or -1 if there is none or the store is closed.
+   */
+  public int length(Key key) {
+    lock.readLock().lock();
+    try {
+      if (data == null)
+        return -1;
+      int slot = find(key);
+      return isEmpty(slot) ? -1 : index.getInt(slot + SLOT_LENGTH);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Stores {@code body} under {@code key} unless it is already present. Bodies larger than half the bound
+   * and bodies put after {@link #close()} are not stored; returns whether the body is in the store afterwards.
+   */
+  public boolean put(Key key, byte[] body) throws IOException {
+    Objects.requireNonNull(body);
+    long recordSize = RECORD_HEADER_SIZE + (long) body.length;
+    if (recordSize > maxBytes / 2)
+      return false;
+
+    lock.writeLock().lock();
+    try {
+      if (data == null)
+        return false;
+      int slot = find(key);
+      if (!isEmpty(slot))
+        return true;
+      if (dataSize + recordSize > maxBytes) {
+        compact(maxBytes / 2 - recordSize);
+        slot = find(key);
+      } else if ((count + 1) * 4L > capacity * 3L) {
+        rebuildIndex(capacity * 2, liveSlots());
+        slot = find(key);
+      }
+
+      long offset = dataSize;
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE)
+        .putInt(RECORD_MAGIC).putLong(key.high()).putLong(key.low()).putInt(body.length).flip();
+      writeFully(data.channel, new ByteBuffer[]{header, ByteBuffer.wrap(body)}, offset);
+      dataSize += recordSize;
+      writeSlot(index, slot, key, offset, body.length, clock.incrementAndGet());
+      count++;
+      writeHeader();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int getEntryCount() {
+    lock.readLock().lock();
+    try {
+      return count;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long getDataSize() {
+    lock.readLock().lock();
+    try {
+      return dataSize;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (data == null)
+        return;
+      writeHeader();
+      index.force();
+      data.channel.force(false);
+      data.release();
+      indexChannel.close();
+      data = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void load() throws IOException {
+    data = new DataFile(FileChannel.open(directory.resolve(DATA_FILE),
+      StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    long fileSize = data.channel.size();
+    Path indexPath = directory.resolve(INDEX_FILE);
+
+    if (Files.exists(indexPath) && mapIndex(indexPath) && dataSize <= fileSize) {
+      clock.set(index.getLong(CLOCK_OFFSET));
+      scan(dataSize, fileSize);
+    } else {
+      if (indexChannel != null)
+        indexChannel.close();
+      dataSize = 0;
+      rebuildIndex(MIN_CAPACITY, List.of());
+      scan(0, fileSize);
+    }
+  }
+
+  private boolean mapIndex(Path indexPath) throws IOException {
+    indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (indexChannel.size() < HEADER_SIZE)
+      return false;
+    index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+    capacity = index.getInt(CAPACITY_OFFSET);
+    if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != FORMAT_VERSION || Integer.bitCount(capacity) != 1
+      || indexChannel.size() != HEADER_SIZE + (long) capacity * SLOT_SIZE)
+      return false;
+    count = index.getInt(COUNT_OFFSET);
+    dataSize = index.getLong(DATA_SIZE_OFFSET);
+    return true;
+  }
+
+  /**
+   * Indexes the records between {@code from} and {@code to} that the index does not cover yet, and cuts the
+   * data file at the first incomplete one.
+   */
+  private void scan(long from, long to) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    long position = from;
+    while (position + RECORD_HEADER_SIZE <= to) {
+      header.clear();
+      readFully(data.channel, header, position);
+      header.flip();
+      int length = header.getInt(20);
+      if (header.getInt(0) != RECORD_MAGIC || length < 0 || position + RECORD_HEADER_SIZE + length > to)
+        break;
+      Key key = new Key(header.getLong(4), header.getLong(12));
+      if ((count + 1) * 4L > capacity * 3L)
+        rebuildIndex(capacity * 2, liveSlots());
+      int slot = find(key);
+      if (isEmpty(slot)) {
+        writeSlot(index, slot, key, position, length, clock.incrementAndGet());
+        count++;
+      }
+      position += RECORD_HEADER_SIZE + length;
+    }
+    dataSize = position;
+    if (position < data.channel.size())
+      data.channel.truncate(position);
+    writeHeader();
+  }
+
+  /**
+   * Keeps the most recently used entries that fit in {@code budget} bytes, copying them to a new data file.
+   */
+  private void compact(long budget) throws IOException {
+    List<Slot> live = liveSlots();
+    live.sort(Comparator.comparingLong(Slot::stamp).reversed());
+    List<Slot> kept = new ArrayList<>();
+    long keptSize = 0;
+    for (Slot slot : live) {
+      long recordSize = RECORD_HEADER_SIZE + (long) slot.length();
+      if (keptSize + recordSize > budget)
+        continue;
+      kept.add(slot);
+      keptSize += recordSize;
+    }
+    kept.sort(Comparator.comparingLong(Slot::offset));
+
+    Path dataPath = directory.resolve(DATA_FILE);
+    Path tmp = directory.resolve(DATA_FILE + ".tmp");
+    List<Slot> moved = new ArrayList<>(kept.size());
+    try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      long position = 0;
+      for (Slot slot : kept) {
+        long recordSize = RECORD_HEADER_SIZE + (long) slot.length();
+        for (long copied = 0; copied < recordSize; )
+          copied += data.channel.transferTo(slot.offset() + copied, recordSize - copied, out);
+        moved.add(new Slot(slot.high(), slot.low(), position, slot.length(), slot.stamp()));
+        position += recordSize;
+      }
+      out.force(false);
+      dataSize = position;
+    }
+    // The old index must not survive a crash before the new one replaces it: its offsets are stale.
+    index.putInt(0, 0);
+    index.force();
+    Files.move(tmp, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    DataFile previous = data;
+    data = new DataFile(FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    previous.release();
+    rebuildIndex(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(moved.size(), 1) * 2) * 2), moved);
+  }
+
+  private List<Slot> liveSlots() {
+    List<Slot> result = new ArrayList<>(count);
+    for (int i = 0; i < capacity; i++) {
+      int slot = HEADER_SIZE + i * SLOT_SIZE;
+      if (!isEmpty(slot))
+        result.add(new Slot(index.getLong(slot), index.getLong(slot + 8), index.getLong(slot + SLOT_OFFSET),
+          index.getInt(slot + SLOT_LENGTH), index.getLong(slot + SLOT_STAMP)));
+    }
+    return result;
+  }
+
+  /**
+   * Writes a fresh index of {@code newCapacity} slots holding {@code slots} and swaps it in.
+   */
+  private void rebuildIndex(int newCapacity, List<Slot> slots) throws IOException {
+    Path indexPath = directory.resolve(INDEX_FILE);
+    Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+    Files.deleteIfExists(tmp);
+    FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+      HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+    if (indexChannel != null)
+      indexChannel.close();
+    indexChannel = channel;
+    index = buffer;
+    capacity = newCapacity;
+    count = 0;
+    for (Slot slot : slots) {
+      Key key = new Key(slot.high(), slot.low());
+      writeSlot(index, find(key), key, slot.offset(), slot.length(), slot.stamp());
+      count++;
+    }
+    writeHeader();
+    Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Slot holding {@code key}, or the empty slot where it belongs.
+   */
+  private int find(Key key) {
+    int mask = capacity - 1;
+    for (int i = (int) key.high() & mask; ; i = (i + 1) & mask) {
+      int slot = HEADER_SIZE + i * SLOT_SIZE;
+      long high = index.getLong(slot);
+      long low = index.getLong(slot + 8);
+      if (high == key.high() && low == key.low() || high == 0 && low == 0)
+        return slot;
+    }
+  }
+
+  private boolean isEmpty(int slot) {
+    return index.getLong(slot) == 0 && index.getLong(slot + 8) == 0;
+  }
+
+  private void writeHeader() {
+    index.putInt(0, INDEX_MAGIC);
+    index.putInt(4, FORMAT_VERSION);
+    index.putInt(CAPACITY_OFFSET, capacity);
+    index.putInt(COUNT_OFFSET, count);
+    index.putLong(DATA_SIZE_OFFSET, dataSize);
+    index.putLong(CLOCK_OFFSET, clock.get());
+  }
+
+  private static void writeSlot(MappedByteBuffer index, int slot, Key key, long offset, int length, long stamp) {
+    index.putLong(slot + SLOT_OFFSET, offset);
+    index.putLong(slot + SLOT_STAMP, stamp);
+    index.putInt(slot + SLOT_LENGTH, length);
+    index.putLong(slot + 8, key.low());
+    index.putLong(slot, key.high());
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer[] buffers, long position) throws IOException {
+    for (ByteBuffer buffer : buffers) {
+      while (buffer.hasRemaining())
+        position += channel.write(buffer, position);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0)
+        throw new IOException("Unexpected end of " + DATA_FILE);
+      position += read;
+    }
+  }
+
+  /**
+   * Opens the channel a hit is written to, once its length is known.
+   */
+  @FunctionalInterface
+  public interface Target {
+    WritableByteChannel open(int length) throws IOException;
+  }
+
+  /**
+   * 128-bit hash of a canonical description of a render. It is stable across restarts, so its quoted
+   * base64url form serves as the ETag of the body.
+   */
+  public record Key(long high, long low) {
+
+    public Key {
+      if (high == 0 && low == 0)
+        throw new IllegalArgumentException("Reserved key");
+    }
+
+    public static Key of(String canonical) {
+      try {
+        ByteBuffer digest = ByteBuffer.wrap(
+          MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        long high = digest.getLong();
+        long low = digest.getLong();
+        return high == 0 && low == 0 ? new Key(0, 1) : new Key(high, low);
+      } catch (NoSuchAlgorithmException e) {
+        throw new AssertionError(e);
+      }
+    }
+
+    public String etag() {
+      byte[] bytes = ByteBuffer.allocate(16).putLong(high).putLong(low).array();
+      return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes) + "\"";
+    }
+  }
+
+  private record Slot(long high, long low, long offset, int length, long stamp) {
+  }
+
+  /**
+   * One generation of the data file. The store holds a reference until compaction replaces it, and every
+   * transfer holds one while it runs; the channel is closed with the last reference.
+   */
+  private static final class DataFile {
+
+    final FileChannel channel;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    DataFile(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void retain() {
+      references.incrementAndGet();
+    }
+
+    void release() throws IOException {
+      if (references.decrementAndGet() == 0)
+        channel.close();
+    }
+
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * QR Code Generator with custom SVG rendering of modules, finder patterns,
+ *  alignment patterns and central logo supporting.
+ * Based on Nayuki's Fast QR Code Generator
+ *
+ * Copyright (c) Project Nayuki. (MIT License)
+ * https://www.nayuki.io/page/fast-qr-code-generator-library
+ *
+ * Copyright (c) Lourenzo Ferreira. (MIT Licence)
+ * https://github.com/lourenzo/qrcode-svg
+ */
+
+package br.com.lourenzo.qrcode.server;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RenderStoreTest {
+
+  private static final long MAX_BYTES = 1 << 20;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void storedBodiesRoundTrip() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      assertNull(get(store, key(1)));
+      assertTrue(store.put(key(1), body(1, 300)));
+      assertTrue(store.put(key(2), body(2, 0)));
+      assertTrue(store.put(key(1), body(9, 10)));
+
+      assertArrayEquals(body(1, 300), get(store, key(1)));
+      assertArrayEquals(body(2, 0), get(store, key(2)));
+      assertEquals(300, store.length(key(1)));
+      assertEquals(-1, store.length(key(3)));
+      assertEquals(2, store.getEntryCount());
+      assertEquals(2, store.getHits());
+      assertEquals(1, store.getMisses());
+    }
+  }
+
+  @Test
+  public void bodiesSurviveReopen() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      for (int i = 1; i <= 2000; i++)
+        store.put(key(i), body(i, i % 97));
+    }
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      assertEquals(2000, store.getEntryCount());
+      for (int i = 1; i <= 2000; i++)
+        assertArrayEquals(body(i, i % 97), get(store, key(i)));
+    }
+  }
+
+  @Test
+  public void compactionKeepsTheMostRecentlyUsed() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    long maxBytes = 16 * 1024;
+    try (RenderStore store = RenderStore.open(directory, maxBytes)) {
+      for (int i = 1; i <= 16; i++)
+        assertTrue(store.put(key(i), body(i, 1000)));
+      assertEquals(16 * 1024, store.getDataSize());
+      assertArrayEquals(body(1, 1000), get(store, key(1)));
+      assertArrayEquals(body(2, 1000), get(store, key(2)));
+
+      assertTrue(store.put(key(17), body(17, 1000)));
+
+      assertEquals(8, store.getEntryCount());
+      assertTrue(store.getDataSize() <= maxBytes);
+      assertArrayEquals(body(1, 1000), get(store, key(1)));
+      assertArrayEquals(body(2, 1000), get(store, key(2)));
+      assertArrayEquals(body(17, 1000), get(store, key(17)));
+      assertNull(get(store, key(3)));
+      assertFalse(store.put(key(99), body(99, (int) maxBytes)));
+    }
+    try (RenderStore store = RenderStore.open(directory, maxBytes)) {
+      assertEquals(8, store.getEntryCount());
+      assertArrayEquals(body(1, 1000), get(store, key(1)));
+      assertArrayEquals(body(17, 1000), get(store, key(17)));
+      assertNull(get(store, key(3)));
+    }
+  }
+
+  @Test
+  public void unindexedRecordsAreRecoveredAndTornOnesCut() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      store.put(key(1), body(1, 100));
+    }
+    Path index = directory.resolve("renders.idx");
+    byte[] indexed = Files.readAllBytes(index);
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      store.put(key(2), body(2, 100));
+      store.put(key(3), body(3, 100));
+    }
+    Files.write(index, indexed);
+    long complete = Files.size(directory.resolve("renders.dat"));
+    try (FileChannel data = FileChannel.open(directory.resolve("renders.dat"), StandardOpenOption.APPEND)) {
+      data.write(ByteBuffer.wrap(new byte[]{0x51, 0x52, 0x52}));
+    }
+
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      assertEquals(3, store.getEntryCount());
+      assertArrayEquals(body(3, 100), get(store, key(3)));
+      assertEquals(complete, store.getDataSize());
+    }
+    assertEquals(complete, Files.size(directory.resolve("renders.dat")));
+  }
+
+  @Test
+  public void crashDuringRebuildIndexIsRecovered() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      for (int i = 1; i <= 50; i++)
+        store.put(key(i), body(i, 20));
+    }
+    // A crash while writing the new index leaves its temporary file behind; one during compaction leaves the
+    // old index invalidated.
+    Files.write(directory.resolve("renders.idx.tmp"), new byte[100]);
+    try (FileChannel index = FileChannel.open(directory.resolve("renders.idx"), StandardOpenOption.WRITE)) {
+      index.write(ByteBuffer.allocate(4), 0);
+    }
+
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      assertEquals(50, store.getEntryCount());
+      for (int i = 1; i <= 50; i++)
+        assertArrayEquals(body(i, 20), get(store, key(i)));
+      for (int i = 51; i <= 1000; i++)
+        store.put(key(i), body(i, 20));
+    }
+    assertFalse(Files.exists(directory.resolve("renders.idx.tmp")));
+    try (RenderStore store = RenderStore.open(directory, MAX_BYTES)) {
+      assertEquals(1000, store.getEntryCount());
+      assertArrayEquals(body(1000, 20), get(store, key(1000)));
+    }
+  }
+
+  @Test
+  public void closedStoreMisses() throws IOException {
+    RenderStore store = RenderStore.open(folder.getRoot().toPath(), MAX_BYTES);
+    store.put(key(1), body(1, 10));
+    store.close();
+    store.close();
+
+    assertNull(get(store, key(1)));
+    assertEquals(-1, store.length(key(1)));
+    assertFalse(store.put(key(2), body(2, 10)));
+  }
+
+  private static RenderStore.Key key(int i) {
+    return RenderStore.Key.of("key " + i);
+  }
+
+  private static byte[] body(int i, int length) {
+    byte[] body = new byte[length];
+    for (int j = 0; j < length; j++)
+      body[j] = (byte) (i * 31 + j);
+    return body;
+  }
+
+  private static byte[] get(RenderStore store, RenderStore.Key key) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int[] opened = {-1};
+    boolean hit = store.transferTo(key, length -> {
+      opened[0] = length;
+      return Channels.newChannel(out);
+    });
+    if (!hit)
+      return null;
+    assertEquals(opened[0], out.size());
+    return out.toByteArray();
+  }
+
+}
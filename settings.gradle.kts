@@ -12,3 +12,5 @@ plugins {
 
 rootProject.name = "qrcode-svg"
 include("lib")
+include("server")
+include("cli")